@@ -0,0 +1,74 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import at.ac.tuwien.ifs.sge.game.Game;
+import at.ac.tuwien.ifs.sge.game.Gib;
+import java.util.Arrays;
+
+/**
+ * The games the benchmarks and the tournament are run against.
+ */
+enum BenchmarkGame {
+
+  COUNT(2) {
+    @Override
+    Game<?, ?> create() {
+      return new TestCountGame(-4, 4);
+    }
+  },
+
+  DICE(1) {
+    @Override
+    Game<?, ?> create() {
+      return new TestDiceGame();
+    }
+  },
+
+  GIB(2) {
+    @Override
+    Game<?, ?> create() {
+      return new Gib(Arrays
+          .asList("LL", "LM", "LR", "MLL", "MLM", "MLR", "MMM", "MRL", "MRM", "MRR", "RL", "RM",
+              "RR"),
+          Arrays.asList("L", "M", "R"), 2);
+    }
+  },
+
+  NIM(3) {
+    @Override
+    Game<?, ?> create() {
+      return new TestNimGame(3, 10, 3);
+    }
+  },
+
+  SHARE(3) {
+    @Override
+    Game<?, ?> create() {
+      return new TestShareGame(3, 4, 10, 1);
+    }
+  };
+
+  private final int numberOfPlayers;
+
+  BenchmarkGame(int numberOfPlayers) {
+    this.numberOfPlayers = numberOfPlayers;
+  }
+
+  abstract Game<?, ?> create();
+
+  int getNumberOfPlayers() {
+    return numberOfPlayers;
+  }
+
+  /**
+   * @return an agent for the first player that searches at most to the given depth
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  AlphaBetaAgent<Game<Object, ?>, Object> createAgent(int depth) {
+    AlphaBetaAgent<Game<Object, ?>, Object> agent = new AlphaBetaAgent(
+        new AlphaBetaAgent.Options().maxDepth(depth).transpositionTableSize(1 << 16).threads(1),
+        null);
+    agent.setUp(numberOfPlayers, 0);
+    return agent;
+  }
+
+}
@@ -0,0 +1,50 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import at.ac.tuwien.ifs.sge.game.Game;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Samples the outcome of a chance node, as the search does to pick the most frequent outcome.
+ * Only {@link TestDiceGame} has chance nodes; its node after the prediction rolls a die.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChanceBenchmark {
+
+  @Param({"6", "60"})
+  public int times;
+
+  private AbNodeArena<Integer> tree;
+  private int node;
+
+  @Setup(Level.Trial)
+  public void setUpTrial() {
+    Game<Integer, ?> game = new TestDiceGame().doAction(7);
+    tree = new AbNodeArena<>();
+    node = tree.getRoot();
+    tree.setGame(node, game);
+  }
+
+  @Benchmark
+  public boolean simulateDetermineAction(NodeCounter counter) {
+    counter.nodes += tree.simulateDetermineAction(node, times);
+    return tree.isMostFrequentAction(node, 1);
+  }
+
+}
@@ -0,0 +1,56 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import at.ac.tuwien.ifs.sge.game.Game;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Expands the root of a game into a cleared tree, i.e. applies and hashes every action once.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpansionBenchmark {
+
+  @Param({"COUNT", "DICE", "GIB"})
+  public BenchmarkGame game;
+
+  private Game<Object, ?> root;
+  private AlphaBetaAgent<Game<Object, ?>, Object> agent;
+  private AbNodeArena<Object> tree;
+
+  @SuppressWarnings("unchecked")
+  @Setup(Level.Trial)
+  public void setUpTrial() {
+    root = (Game<Object, ?>) game.create();
+    agent = game.createAgent(1);
+    agent.computeNextAction(root, 1, TimeUnit.HOURS);
+    tree = agent.getTree();
+  }
+
+  @Benchmark
+  public int expandNode(NodeCounter counter) {
+    tree.clear();
+    int node = tree.getRoot();
+    tree.setGame(node, root);
+    agent.expandNode(node);
+    int children = tree.getChildCount(node);
+    counter.nodes += children;
+    return children;
+  }
+
+}
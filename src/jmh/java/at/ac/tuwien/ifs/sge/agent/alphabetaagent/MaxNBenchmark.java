@@ -0,0 +1,80 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import at.ac.tuwien.ifs.sge.game.Game;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Deepens the paranoid alpha-beta search and max^n with shallow and last-branch pruning from the
+ * start of games with three players to a fixed depth, to compare the nodes each of them visits.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MaxNBenchmark {
+
+  public enum Search {
+    PARANOID, MAX_N, MAX_N_UNPRUNED
+  }
+
+  @Param({"NIM", "SHARE"})
+  public BenchmarkGame game;
+
+  @Param({"PARANOID", "MAX_N", "MAX_N_UNPRUNED"})
+  public Search search;
+
+  @Param({"4", "6", "8"})
+  public int depth;
+
+  private Game<Object, ?> root;
+  private AlphaBetaAgent<Game<Object, ?>, Object> agent;
+  private MaxNSearch<Object> maxNSearch;
+
+  @SuppressWarnings("unchecked")
+  @Setup(Level.Trial)
+  public void setUpTrial() {
+    root = (Game<Object, ?>) game.create();
+    agent = game.createAgent(depth);
+    int players = game.getNumberOfPlayers();
+    // both games hand out a utility of 1 in total
+    maxNSearch = search == Search.MAX_N
+        ? new MaxNSearch<>(players, 0, 1, false, null)
+        : new MaxNSearch<>(players, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, false,
+            null);
+  }
+
+  @Setup(Level.Invocation)
+  public void setUpInvocation() {
+    agent.setUp(game.getNumberOfPlayers(), 0);
+  }
+
+  @Benchmark
+  public Object deepen(NodeCounter counter) {
+    if (search == Search.PARANOID) {
+      Object action = agent.computeNextAction(root, 1, TimeUnit.HOURS);
+      counter.nodes += agent.getStatistics().getNodesVisited();
+      return action;
+    }
+    Object action = null;
+    for (int d = 1; d <= depth; d++) {
+      action = maxNSearch.search(root, d, action, () -> false);
+      counter.nodes += maxNSearch.getNodesVisited();
+    }
+    return action;
+  }
+
+}
@@ -0,0 +1,23 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Counts the nodes a benchmark touched, which JMH reports as a throughput next to the score.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class NodeCounter {
+
+  public long nodes;
+
+  @Setup(Level.Iteration)
+  public void reset() {
+    nodes = 0;
+  }
+
+}
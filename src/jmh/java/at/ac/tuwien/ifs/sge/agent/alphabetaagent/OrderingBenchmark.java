@@ -0,0 +1,61 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import at.ac.tuwien.ifs.sge.game.Game;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Orders the children of the root as the search does before descending into a node. The children
+ * get new utilities before every ordering, so the input is never already sorted.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderingBenchmark {
+
+  private static final int VALUES = 1 << 10;
+
+  @Param({"COUNT", "DICE", "GIB"})
+  public BenchmarkGame game;
+
+  private AlphaBetaAgent<Game<Object, ?>, Object> agent;
+  private AbNodeArena<Object> tree;
+  private double[] values;
+  private int offset;
+
+  @SuppressWarnings("unchecked")
+  @Setup(Level.Trial)
+  public void setUpTrial() {
+    agent = game.createAgent(1);
+    agent.computeNextAction((Game<Object, ?>) game.create(), 1, TimeUnit.HOURS);
+    tree = agent.getTree();
+    values = new Random(42).doubles(VALUES).toArray();
+  }
+
+  @Benchmark
+  public int orderChildren(NodeCounter counter) {
+    int root = tree.getRoot();
+    for (int child = tree.getFirstChild(root); child != AbNodeArena.NONE;
+        child = tree.getNextSibling(child)) {
+      tree.setUtility(child, values[offset++ & (VALUES - 1)]);
+    }
+    counter.nodes += tree.getChildCount(root);
+    return agent.orderChildren(root);
+  }
+
+}
@@ -0,0 +1,57 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import at.ac.tuwien.ifs.sge.game.Game;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Searches from the start of a game to a fixed depth with a cleared tree and transposition table.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+
+  @Param({"COUNT", "DICE", "GIB"})
+  public BenchmarkGame game;
+
+  @Param({"4", "6"})
+  public int depth;
+
+  private Game<Object, ?> root;
+  private AlphaBetaAgent<Game<Object, ?>, Object> agent;
+
+  @SuppressWarnings("unchecked")
+  @Setup(Level.Trial)
+  public void setUpTrial() {
+    root = (Game<Object, ?>) game.create();
+    agent = game.createAgent(depth);
+  }
+
+  @Setup(Level.Invocation)
+  public void setUpInvocation() {
+    agent.setUp(game.getNumberOfPlayers(), 0);
+  }
+
+  @Benchmark
+  public Object computeNextAction(NodeCounter counter) {
+    Object action = agent.computeNextAction(root, 1, TimeUnit.HOURS);
+    counter.nodes += agent.getStatistics().getNodesVisited();
+    return action;
+  }
+
+}
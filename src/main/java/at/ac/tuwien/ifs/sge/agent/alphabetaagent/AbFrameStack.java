@@ -0,0 +1,260 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import java.util.Arrays;
+
+/**
+ * The explicit recursion stack of the alpha-beta search. A frame holds a node, the child visited
+ * last, the cursor to the next child to visit and the windows of the utility and the heuristic,
+ * both as they were when the frame was pushed and as they are now. The arrays only grow, so once
+ * the stack reached the maximum depth of a search, pushing and popping does not allocate anymore.
+ *
+ * <p>A frame of a chance node searched by expectimax also sums up the values of the outcomes
+ * searched so far, weighted by how often each outcome was sampled, and the sum of these weights.
+ */
+class AbFrameStack {
+
+  /**
+   * The cursor of a frame whose node has not been expanded yet.
+   */
+  static final int UNVISITED = -2;
+
+  private int[] nodes;
+  private int[] children;
+  private int[] cursors;
+  private boolean[] cutOffs;
+  private boolean[] scouts;
+  private double[] initialUtilityAlphas;
+  private double[] initialUtilityBetas;
+  private double[] initialHeuristicAlphas;
+  private double[] initialHeuristicBetas;
+  private double[] utilityAlphas;
+  private double[] utilityBetas;
+  private double[] heuristicAlphas;
+  private double[] heuristicBetas;
+  private int[] weights;
+  private double[] utilitySums;
+  private double[] heuristicSums;
+
+  private int size;
+
+  AbFrameStack() {
+    this(64);
+  }
+
+  AbFrameStack(int capacity) {
+    capacity = Math.max(capacity, 1);
+    nodes = new int[capacity];
+    children = new int[capacity];
+    cursors = new int[capacity];
+    cutOffs = new boolean[capacity];
+    scouts = new boolean[capacity];
+    initialUtilityAlphas = new double[capacity];
+    initialUtilityBetas = new double[capacity];
+    initialHeuristicAlphas = new double[capacity];
+    initialHeuristicBetas = new double[capacity];
+    utilityAlphas = new double[capacity];
+    utilityBetas = new double[capacity];
+    heuristicAlphas = new double[capacity];
+    heuristicBetas = new double[capacity];
+    weights = new int[capacity];
+    utilitySums = new double[capacity];
+    heuristicSums = new double[capacity];
+  }
+
+  private void grow() {
+    int capacity = nodes.length << 1;
+    nodes = Arrays.copyOf(nodes, capacity);
+    children = Arrays.copyOf(children, capacity);
+    cursors = Arrays.copyOf(cursors, capacity);
+    cutOffs = Arrays.copyOf(cutOffs, capacity);
+    scouts = Arrays.copyOf(scouts, capacity);
+    initialUtilityAlphas = Arrays.copyOf(initialUtilityAlphas, capacity);
+    initialUtilityBetas = Arrays.copyOf(initialUtilityBetas, capacity);
+    initialHeuristicAlphas = Arrays.copyOf(initialHeuristicAlphas, capacity);
+    initialHeuristicBetas = Arrays.copyOf(initialHeuristicBetas, capacity);
+    utilityAlphas = Arrays.copyOf(utilityAlphas, capacity);
+    utilityBetas = Arrays.copyOf(utilityBetas, capacity);
+    heuristicAlphas = Arrays.copyOf(heuristicAlphas, capacity);
+    heuristicBetas = Arrays.copyOf(heuristicBetas, capacity);
+    weights = Arrays.copyOf(weights, capacity);
+    utilitySums = Arrays.copyOf(utilitySums, capacity);
+    heuristicSums = Arrays.copyOf(heuristicSums, capacity);
+  }
+
+  /**
+   * Pushes an unvisited frame.
+   *
+   * @return the index of the new frame
+   */
+  int push(int node,
+      double utilityAlpha, double utilityBeta,
+      double heuristicAlpha, double heuristicBeta) {
+    if (size == nodes.length) {
+      grow();
+    }
+    int frame = size++;
+    nodes[frame] = node;
+    children[frame] = AbNodeArena.NONE;
+    cursors[frame] = UNVISITED;
+    cutOffs[frame] = false;
+    scouts[frame] = false;
+    initialUtilityAlphas[frame] = utilityAlpha;
+    initialUtilityBetas[frame] = utilityBeta;
+    initialHeuristicAlphas[frame] = heuristicAlpha;
+    initialHeuristicBetas[frame] = heuristicBeta;
+    utilityAlphas[frame] = utilityAlpha;
+    utilityBetas[frame] = utilityBeta;
+    heuristicAlphas[frame] = heuristicAlpha;
+    heuristicBetas[frame] = heuristicBeta;
+    weights[frame] = 0;
+    utilitySums[frame] = 0;
+    heuristicSums[frame] = 0;
+    return frame;
+  }
+
+  void pop() {
+    size--;
+  }
+
+  /**
+   * @return the index of the topmost frame
+   */
+  int top() {
+    return size - 1;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  int size() {
+    return size;
+  }
+
+  void clear() {
+    size = 0;
+  }
+
+  int getNode(int frame) {
+    return nodes[frame];
+  }
+
+  /**
+   * @return the child visited last or {@link AbNodeArena#NONE} if there is none yet
+   */
+  int getChild(int frame) {
+    return children[frame];
+  }
+
+  void setChild(int frame, int child) {
+    children[frame] = child;
+  }
+
+  int getCursor(int frame) {
+    return cursors[frame];
+  }
+
+  void setCursor(int frame, int cursor) {
+    cursors[frame] = cursor;
+  }
+
+  boolean isCutOff(int frame) {
+    return cutOffs[frame];
+  }
+
+  /**
+   * @return whether the node of a frame is searched with null windows, only to tell whether it is
+   * better than its siblings so far
+   */
+  boolean isScout(int frame) {
+    return scouts[frame];
+  }
+
+  void setScout(int frame, boolean scout) {
+    scouts[frame] = scout;
+  }
+
+  void setCutOff(int frame, boolean cutOff) {
+    cutOffs[frame] = cutOff;
+  }
+
+  double getInitialUtilityAlpha(int frame) {
+    return initialUtilityAlphas[frame];
+  }
+
+  double getInitialUtilityBeta(int frame) {
+    return initialUtilityBetas[frame];
+  }
+
+  double getInitialHeuristicAlpha(int frame) {
+    return initialHeuristicAlphas[frame];
+  }
+
+  double getInitialHeuristicBeta(int frame) {
+    return initialHeuristicBetas[frame];
+  }
+
+  double getUtilityAlpha(int frame) {
+    return utilityAlphas[frame];
+  }
+
+  void setUtilityAlpha(int frame, double utilityAlpha) {
+    utilityAlphas[frame] = utilityAlpha;
+  }
+
+  double getUtilityBeta(int frame) {
+    return utilityBetas[frame];
+  }
+
+  void setUtilityBeta(int frame, double utilityBeta) {
+    utilityBetas[frame] = utilityBeta;
+  }
+
+  double getHeuristicAlpha(int frame) {
+    return heuristicAlphas[frame];
+  }
+
+  void setHeuristicAlpha(int frame, double heuristicAlpha) {
+    heuristicAlphas[frame] = heuristicAlpha;
+  }
+
+  double getHeuristicBeta(int frame) {
+    return heuristicBetas[frame];
+  }
+
+  void setHeuristicBeta(int frame, double heuristicBeta) {
+    heuristicBetas[frame] = heuristicBeta;
+  }
+
+  int getWeight(int frame) {
+    return weights[frame];
+  }
+
+  double getUtilitySum(int frame) {
+    return utilitySums[frame];
+  }
+
+  double getHeuristicSum(int frame) {
+    return heuristicSums[frame];
+  }
+
+  /**
+   * Adds the values of a searched outcome of a chance node, weighted by the given weight.
+   */
+  void addOutcome(int frame, int weight, double utility, double heuristic) {
+    weights[frame] += weight;
+    utilitySums[frame] += weight * utility;
+    heuristicSums[frame] += weight * heuristic;
+  }
+
+  /**
+   * @return true if both the utility and the heuristic window of the frame are closed. The
+   * heuristic only breaks ties of the utility, so a closed heuristic window does not make the
+   * utility of the remaining children irrelevant.
+   */
+  boolean isWindowClosed(int frame) {
+    return utilityAlphas[frame] >= utilityBetas[frame]
+        && heuristicAlphas[frame] >= heuristicBetas[frame];
+  }
+
+}
@@ -0,0 +1,1012 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import at.ac.tuwien.ifs.sge.game.ActionRecord;
+import at.ac.tuwien.ifs.sge.game.Game;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The search tree of the agent, stored as parallel primitive arrays. A node is an index into
+ * these arrays; children are linked through their first child and next sibling. The subtrees
+ * dropped by {@link #dropChildren(int)} are freed and their slots reused by the next nodes added,
+ * while {@link #findRoot(Game)} copies the still reachable part of the tree into fresh arrays.
+ *
+ * <p>A node may be expanded lazily: it keeps the actions of the children not created yet, which
+ * {@link #nextPendingAction(int)} hands out one at a time.
+ *
+ * <p>The games of inner nodes can be evicted by {@link #evictGames()}. {@link #getGame(int)}
+ * restores an evicted game by replaying the actions from the closest ancestor which still has its
+ * game, and keeps the games along that path until the next eviction.
+ *
+ * <p>Every node keeps the range of the utilities of its children evaluated since the range was
+ * last reset, so that the spread of the siblings of a node is known without visiting them.
+ *
+ * <p>A node labeled by a completed search keeps the depth it was searched to and whether its
+ * values are exact or only bounds, so that a later, deeper search can take them over instead of
+ * searching the node again, and which of its children was the best.
+ *
+ * @param <A> the type of actions
+ */
+class AbNodeArena<A> {
+
+  static final int NONE = -1;
+
+  /**
+   * The searched depth of a node whose every line ends in a finished game.
+   */
+  static final int EXHAUSTED = Integer.MAX_VALUE;
+
+  /**
+   * The searched depth of a node without a completed search.
+   */
+  static final int UNSEARCHED = -1;
+
+  private static final int DEFAULT_CAPACITY = 1 << 10;
+
+  private static final byte EVALUATED = 1;
+  private static final byte BEST = 2;
+
+  @FunctionalInterface
+  interface NodeComparator {
+
+    int compare(int node1, int node2);
+
+    default NodeComparator reversed() {
+      return (node1, node2) -> compare(node2, node1);
+    }
+
+    default NodeComparator thenComparing(NodeComparator other) {
+      return (node1, node2) -> {
+        int res = compare(node1, node2);
+        return res != 0 ? res : other.compare(node1, node2);
+      };
+    }
+  }
+
+  private Object[] games;
+  private Object[] actions;
+  private Object[] chanceEstimators;
+  private Object[] pendingActions;
+  private int[] pendingCursors;
+  private long[] hashes;
+  private double[] utilities;
+  private double[] heuristics;
+  private double[] minChildUtilities;
+  private double[] maxChildUtilities;
+  private int[] searchedDepths;
+  private int[] minChildDepths;
+  private byte[] utilityBounds;
+  private byte[] heuristicBounds;
+  private int[] depths;
+  private int[] players;
+  private byte[] flags;
+  private int[] parents;
+  private int[] firstChildren;
+  private int[] lastChildren;
+  private int[] nextSiblings;
+  private int[] childCounts;
+
+  private int size;
+  private int[] freeSlots;
+  private int freeCount;
+  private int root;
+  private long restoredGames;
+  private long prunedNodes;
+
+  private int[] scratch;
+  private int[] sortBuffer;
+  private int[] replayPath;
+  private int[] pruneOrder;
+  private int[] pruneRanks;
+  private long[] pruneInner;
+
+  private ChanceSampler chanceSampler;
+
+  AbNodeArena() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  AbNodeArena(int capacity) {
+    this(capacity, true);
+  }
+
+  private AbNodeArena(int capacity, boolean withRoot) {
+    allocate(Math.max(capacity, 2));
+    scratch = new int[16];
+    freeSlots = new int[16];
+    sortBuffer = new int[16];
+    replayPath = new int[16];
+    pruneOrder = new int[16];
+    pruneRanks = new int[16];
+    pruneInner = new long[16];
+    if (withRoot) {
+      clear();
+    }
+  }
+
+  private void allocate(int capacity) {
+    games = new Object[capacity];
+    actions = new Object[capacity];
+    chanceEstimators = new Object[capacity];
+    pendingActions = new Object[capacity];
+    pendingCursors = new int[capacity];
+    hashes = new long[capacity];
+    utilities = new double[capacity];
+    heuristics = new double[capacity];
+    minChildUtilities = new double[capacity];
+    maxChildUtilities = new double[capacity];
+    searchedDepths = new int[capacity];
+    minChildDepths = new int[capacity];
+    utilityBounds = new byte[capacity];
+    heuristicBounds = new byte[capacity];
+    depths = new int[capacity];
+    players = new int[capacity];
+    flags = new byte[capacity];
+    parents = new int[capacity];
+    firstChildren = new int[capacity];
+    lastChildren = new int[capacity];
+    nextSiblings = new int[capacity];
+    childCounts = new int[capacity];
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity <= hashes.length) {
+      return;
+    }
+    int newCapacity = Math.max(capacity, hashes.length << 1);
+    games = Arrays.copyOf(games, newCapacity);
+    actions = Arrays.copyOf(actions, newCapacity);
+    chanceEstimators = Arrays.copyOf(chanceEstimators, newCapacity);
+    pendingActions = Arrays.copyOf(pendingActions, newCapacity);
+    pendingCursors = Arrays.copyOf(pendingCursors, newCapacity);
+    hashes = Arrays.copyOf(hashes, newCapacity);
+    utilities = Arrays.copyOf(utilities, newCapacity);
+    heuristics = Arrays.copyOf(heuristics, newCapacity);
+    minChildUtilities = Arrays.copyOf(minChildUtilities, newCapacity);
+    maxChildUtilities = Arrays.copyOf(maxChildUtilities, newCapacity);
+    searchedDepths = Arrays.copyOf(searchedDepths, newCapacity);
+    minChildDepths = Arrays.copyOf(minChildDepths, newCapacity);
+    utilityBounds = Arrays.copyOf(utilityBounds, newCapacity);
+    heuristicBounds = Arrays.copyOf(heuristicBounds, newCapacity);
+    depths = Arrays.copyOf(depths, newCapacity);
+    players = Arrays.copyOf(players, newCapacity);
+    flags = Arrays.copyOf(flags, newCapacity);
+    parents = Arrays.copyOf(parents, newCapacity);
+    firstChildren = Arrays.copyOf(firstChildren, newCapacity);
+    lastChildren = Arrays.copyOf(lastChildren, newCapacity);
+    nextSiblings = Arrays.copyOf(nextSiblings, newCapacity);
+    childCounts = Arrays.copyOf(childCounts, newCapacity);
+  }
+
+  /**
+   * Removes all nodes and creates an empty root without a game.
+   */
+  void clear() {
+    Arrays.fill(games, 0, size, null);
+    Arrays.fill(actions, 0, size, null);
+    Arrays.fill(chanceEstimators, 0, size, null);
+    Arrays.fill(pendingActions, 0, size, null);
+    size = 0;
+    freeCount = 0;
+    root = add(NONE, null, 0L, 0, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY);
+  }
+
+  private int add(int parent, Game<A, ?> game, long hash, int depth, double utility,
+      double heuristic) {
+    int node;
+    if (freeCount > 0) {
+      node = freeSlots[--freeCount];
+    } else {
+      ensureCapacity(size + 1);
+      node = size++;
+    }
+    games[node] = game;
+    hashes[node] = hash;
+    utilities[node] = utility;
+    heuristics[node] = heuristic;
+    resetChildUtilities(node);
+    clearSearch(node);
+    depths[node] = depth;
+    flags[node] = 0;
+    parents[node] = parent;
+    firstChildren[node] = NONE;
+    lastChildren[node] = NONE;
+    nextSiblings[node] = NONE;
+    childCounts[node] = 0;
+    pendingActions[node] = null;
+    setGameDependentFields(node, game);
+    return node;
+  }
+
+  private void setGameDependentFields(int node, Game<A, ?> game) {
+    actions[node] = game != null ? game.getPreviousAction() : null;
+    players[node] = game != null ? game.getCurrentPlayer() : 0;
+    chanceEstimators[node] = game != null && game.getCurrentPlayer() < 0
+        ? new ChanceEstimator<A>() : null;
+  }
+
+  /**
+   * Appends a new child to a node.
+   *
+   * @return the index of the child
+   */
+  int addChild(int parent, Game<A, ?> game, long hash, double utility, double heuristic) {
+    int child = add(parent, game, hash, depths[parent] + 1, utility, heuristic);
+    if (lastChildren[parent] == NONE) {
+      firstChildren[parent] = child;
+    } else {
+      nextSiblings[lastChildren[parent]] = child;
+    }
+    lastChildren[parent] = child;
+    childCounts[parent]++;
+    return child;
+  }
+
+  /**
+   * Relinks a node as the first child of its parent.
+   */
+  void moveToFront(int node) {
+    int parent = parents[node];
+    int previous = firstChildren[parent];
+    if (previous == node) {
+      return;
+    }
+    while (nextSiblings[previous] != node) {
+      previous = nextSiblings[previous];
+    }
+    nextSiblings[previous] = nextSiblings[node];
+    if (lastChildren[parent] == node) {
+      lastChildren[parent] = previous;
+    }
+    nextSiblings[node] = firstChildren[parent];
+    firstChildren[parent] = node;
+  }
+
+  /**
+   * Frees the subtrees of all children of a node and forgets its pending actions.
+   */
+  void dropChildren(int node) {
+    // the free slots double as the queue of the nodes whose children are still to be freed
+    int read = freeCount;
+    for (int child = firstChildren[node]; child != NONE; child = nextSiblings[child]) {
+      free(child);
+    }
+    while (read < freeCount) {
+      for (int child = firstChildren[freeSlots[read++]]; child != NONE;
+          child = nextSiblings[child]) {
+        free(child);
+      }
+    }
+    unlinkChildren(node);
+  }
+
+  private void free(int node) {
+    if (freeCount == freeSlots.length) {
+      freeSlots = Arrays.copyOf(freeSlots, freeCount << 1);
+    }
+    freeSlots[freeCount++] = node;
+    games[node] = null;
+    actions[node] = null;
+    chanceEstimators[node] = null;
+    pendingActions[node] = null;
+  }
+
+  /**
+   * Unlinks all children of a node and forgets its pending actions, leaving their slots to the
+   * next compaction.
+   */
+  private void unlinkChildren(int node) {
+    firstChildren[node] = NONE;
+    lastChildren[node] = NONE;
+    childCounts[node] = 0;
+    pendingActions[node] = null;
+  }
+
+  /**
+   * Sets the actions of the children of a node which are yet to be created, in the order they
+   * are handed out.
+   */
+  void setPendingActions(int node, Object[] actions) {
+    pendingActions[node] = actions.length > 0 ? actions : null;
+    pendingCursors[node] = 0;
+  }
+
+  boolean hasPendingActions(int node) {
+    return pendingActions[node] != null;
+  }
+
+  /**
+   * @return the next action of a child yet to be created, or null if there is none
+   */
+  @SuppressWarnings("unchecked")
+  A nextPendingAction(int node) {
+    Object[] actions = (Object[]) pendingActions[node];
+    if (actions == null) {
+      return null;
+    }
+    A action = (A) actions[pendingCursors[node]++];
+    if (pendingCursors[node] == actions.length) {
+      pendingActions[node] = null;
+    }
+    return action;
+  }
+
+  /**
+   * Moves the root to the node reached by the actions done since the game of the current root.
+   * The subtree of the new root is compacted to the front of the arena, everything else is
+   * discarded. If the game cannot be found in the tree, the tree is replaced by a single root.
+   *
+   * @param game the current game
+   * @return true if the tree was empty or the game was found
+   */
+  boolean findRoot(Game<A, ?> game) {
+    Game<A, ?> rootGame = getGame(root);
+    if (rootGame == null) {
+      setGame(root, game);
+      return true;
+    }
+
+    List<ActionRecord<A>> actionRecords = game.getActionRecords();
+    int node = root;
+    for (int i = rootGame.getActionRecords().size(); node != NONE && i < actionRecords.size();
+        i++) {
+      A action = actionRecords.get(i).getAction();
+      int child = firstChildren[node];
+      while (child != NONE && !action.equals(getAction(child))) {
+        child = nextSiblings[child];
+      }
+      node = child;
+    }
+
+    if (node == NONE || actionRecords.size() < rootGame.getActionRecords().size()) {
+      clear();
+      setGame(root, game);
+      return false;
+    }
+
+    if (node != root) {
+      compact(node);
+    }
+    // the root is the position of the game, so the outcomes sampled at it still hold
+    games[root] = game;
+    return true;
+  }
+
+  /**
+   * Shrinks the tree to at most the given number of nodes by turning the least promising inner
+   * nodes into leaves. The children of every node are sorted by the comparator, most promising
+   * first; a node is the less promising the more siblings precede it and its ancestors. All
+   * outcomes of a chance node are equally promising.
+   *
+   * @param maxSize the number of nodes to keep at most
+   * @param promise the order of siblings, the most promising last
+   */
+  void prune(int maxSize, NodeComparator promise) {
+    if (size() <= maxSize) {
+      return;
+    }
+    NodeComparator mostPromisingFirst = promise.reversed();
+    ensurePruneCapacity();
+    int[] order = pruneOrder;
+    int[] ranks = pruneRanks;
+    int reachable = 0;
+    order[reachable++] = root;
+    ranks[root] = 0;
+    for (int read = 0; read < reachable; read++) {
+      int node = order[read];
+      sortChildren(node, mostPromisingFirst);
+      int rank = ranks[node];
+      for (int child = firstChildren[node]; child != NONE; child = nextSiblings[child]) {
+        ranks[child] = rank;
+        if (players[node] >= 0) {
+          rank++;
+        }
+        order[reachable++] = child;
+      }
+    }
+
+    if (reachable > maxSize) {
+      long[] inner = pruneInner;
+      int nrOfInner = 0;
+      for (int i = 0; i < reachable; i++) {
+        if (childCounts[order[i]] > 0) {
+          inner[nrOfInner++] = (long) ranks[order[i]] << 32 | i;
+        }
+      }
+      Arrays.sort(inner, 0, nrOfInner);
+      int kept = 1;
+      int i = 0;
+      while (i < nrOfInner && kept + childCounts[order[(int) inner[i]]] <= maxSize) {
+        kept += childCounts[order[(int) inner[i++]]];
+      }
+      while (i < nrOfInner) {
+        unlinkChildren(order[(int) inner[i++]]);
+      }
+    }
+
+    int oldSize = size();
+    compact(root);
+    prunedNodes += oldSize - size();
+  }
+
+  private void ensurePruneCapacity() {
+    if (pruneOrder.length < size) {
+      pruneOrder = new int[Integer.highestOneBit(size) << 1];
+      pruneRanks = new int[pruneOrder.length];
+      pruneInner = new long[pruneOrder.length];
+    }
+  }
+
+  /**
+   * @return the number of nodes in the subtree of a node, the node included
+   */
+  private int countSubtree(int node) {
+    ensurePruneCapacity();
+    int[] order = pruneOrder;
+    int count = 0;
+    order[count++] = node;
+    for (int read = 0; read < count; read++) {
+      for (int child = firstChildren[order[read]]; child != NONE; child = nextSiblings[child]) {
+        order[count++] = child;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Moves the subtree of a node to a new arena sized for it, so the memory of the discarded nodes
+   * is freed.
+   */
+  private void compact(int newRoot) {
+    AbNodeArena<A> target = new AbNodeArena<>(Math.max(countSubtree(newRoot), DEFAULT_CAPACITY),
+        false);
+    target.root = target.copy(this, newRoot, NONE);
+    int read = 0;
+    while (read < target.size) {
+      int original = target.firstChildren[read];
+      target.firstChildren[read] = NONE;
+      target.lastChildren[read] = NONE;
+      target.childCounts[read] = 0;
+      for (int child = original; child != NONE; child = nextSiblings[child]) {
+        int copy = target.copy(this, child, read);
+        if (target.lastChildren[read] == NONE) {
+          target.firstChildren[read] = copy;
+        } else {
+          target.nextSiblings[target.lastChildren[read]] = copy;
+        }
+        target.lastChildren[read] = copy;
+        target.childCounts[read]++;
+      }
+      read++;
+    }
+
+    games = target.games;
+    actions = target.actions;
+    chanceEstimators = target.chanceEstimators;
+    pendingActions = target.pendingActions;
+    pendingCursors = target.pendingCursors;
+    hashes = target.hashes;
+    utilities = target.utilities;
+    heuristics = target.heuristics;
+    minChildUtilities = target.minChildUtilities;
+    maxChildUtilities = target.maxChildUtilities;
+    searchedDepths = target.searchedDepths;
+    minChildDepths = target.minChildDepths;
+    utilityBounds = target.utilityBounds;
+    heuristicBounds = target.heuristicBounds;
+    depths = target.depths;
+    players = target.players;
+    flags = target.flags;
+    parents = target.parents;
+    firstChildren = target.firstChildren;
+    lastChildren = target.lastChildren;
+    nextSiblings = target.nextSiblings;
+    childCounts = target.childCounts;
+    size = target.size;
+    freeCount = 0;
+    root = target.root;
+  }
+
+  /**
+   * Copies a node of another arena. The first child field keeps the index of the first child in
+   * the other arena until the children are copied as well.
+   */
+  private int copy(AbNodeArena<A> source, int node, int parent) {
+    ensureCapacity(size + 1);
+    int copy = size++;
+    games[copy] = source.games[node];
+    actions[copy] = source.actions[node];
+    chanceEstimators[copy] = source.chanceEstimators[node];
+    pendingActions[copy] = source.pendingActions[node];
+    pendingCursors[copy] = source.pendingCursors[node];
+    hashes[copy] = source.hashes[node];
+    utilities[copy] = source.utilities[node];
+    heuristics[copy] = source.heuristics[node];
+    minChildUtilities[copy] = source.minChildUtilities[node];
+    maxChildUtilities[copy] = source.maxChildUtilities[node];
+    searchedDepths[copy] = source.searchedDepths[node];
+    minChildDepths[copy] = source.minChildDepths[node];
+    utilityBounds[copy] = source.utilityBounds[node];
+    heuristicBounds[copy] = source.heuristicBounds[node];
+    depths[copy] = source.depths[node];
+    players[copy] = source.players[node];
+    flags[copy] = source.flags[node];
+    parents[copy] = parent;
+    firstChildren[copy] = source.firstChildren[node];
+    lastChildren[copy] = NONE;
+    nextSiblings[copy] = NONE;
+    childCounts[copy] = 0;
+    return copy;
+  }
+
+  /**
+   * Sorts the children of a node with a stable sort and relinks them in that order.
+   */
+  void sortChildren(int node, NodeComparator comparator) {
+    int n = childCounts[node];
+    if (n < 2) {
+      return;
+    }
+    collectChildren(node);
+    sort(scratch, sortBuffer, 0, n, comparator);
+
+    firstChildren[node] = scratch[0];
+    for (int i = 1; i < n; i++) {
+      nextSiblings[scratch[i - 1]] = scratch[i];
+    }
+    nextSiblings[scratch[n - 1]] = NONE;
+    lastChildren[node] = scratch[n - 1];
+  }
+
+  /**
+   * Finds the child which would be at the given position if the children were sorted, without
+   * sorting or relinking them, in linear time on average.
+   *
+   * @param k the position of the child in the sorted order
+   */
+  int selectChild(int node, int k, NodeComparator comparator) {
+    collectChildren(node);
+    int[] a = scratch;
+    int from = 0;
+    int to = childCounts[node] - 1;
+    while (from < to) {
+      int pivot = a[(from + to) >>> 1];
+      int i = from;
+      int j = to;
+      while (i <= j) {
+        while (comparator.compare(a[i], pivot) < 0) {
+          i++;
+        }
+        while (comparator.compare(a[j], pivot) > 0) {
+          j--;
+        }
+        if (i <= j) {
+          int swap = a[i];
+          a[i++] = a[j];
+          a[j--] = swap;
+        }
+      }
+      if (k <= j) {
+        to = j;
+      } else if (k >= i) {
+        from = i;
+      } else {
+        break;
+      }
+    }
+    return a[k];
+  }
+
+  private void collectChildren(int node) {
+    int n = childCounts[node];
+    if (scratch.length < n) {
+      scratch = new int[Integer.highestOneBit(n) << 1];
+      sortBuffer = new int[scratch.length];
+    }
+    int i = 0;
+    for (int child = firstChildren[node]; child != NONE; child = nextSiblings[child]) {
+      scratch[i++] = child;
+    }
+  }
+
+  private static void sort(int[] a, int[] buffer, int from, int to, NodeComparator comparator) {
+    if (to - from <= 16) {
+      for (int i = from + 1; i < to; i++) {
+        int x = a[i];
+        int j = i - 1;
+        while (j >= from && comparator.compare(a[j], x) > 0) {
+          a[j + 1] = a[j];
+          j--;
+        }
+        a[j + 1] = x;
+      }
+      return;
+    }
+    int mid = (from + to) >>> 1;
+    sort(a, buffer, from, mid, comparator);
+    sort(a, buffer, mid, to, comparator);
+    if (comparator.compare(a[mid - 1], a[mid]) <= 0) {
+      return;
+    }
+    System.arraycopy(a, from, buffer, from, to - from);
+    int l = from;
+    int r = mid;
+    for (int i = from; i < to; i++) {
+      if (r >= to || (l < mid && comparator.compare(buffer[l], buffer[r]) <= 0)) {
+        a[i] = buffer[l++];
+      } else {
+        a[i] = buffer[r++];
+      }
+    }
+  }
+
+  int getRoot() {
+    return root;
+  }
+
+  /**
+   * @return the number of nodes the arena has room for before it grows
+   */
+  int capacity() {
+    return hashes.length;
+  }
+
+  /**
+   * @return the number of nodes in the tree
+   */
+  int size() {
+    return size - freeCount;
+  }
+
+  /**
+   * @return the number of slots nodes were added to, free ones included, so every node is below
+   */
+  int slots() {
+    return size;
+  }
+
+  @SuppressWarnings("unchecked")
+  Game<A, ?> getGame(int node) {
+    Game<A, ?> game = (Game<A, ?>) games[node];
+    if (game == null && parents[node] != NONE) {
+      game = restoreGame(node);
+    }
+    return game;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Game<A, ?> restoreGame(int node) {
+    int ancestor = node;
+    while (games[ancestor] == null && parents[ancestor] != NONE) {
+      ancestor = parents[ancestor];
+    }
+    Game<A, ?> game = (Game<A, ?>) games[ancestor];
+    if (game == null) {
+      return null;
+    }
+    int depth = depths[node] - depths[ancestor];
+    // comparators sorting with the scratch array may restore games, so the path needs its own
+    if (replayPath.length < depth) {
+      replayPath = new int[Integer.highestOneBit(depth) << 1];
+    }
+    int i = depth;
+    for (int descendant = node; descendant != ancestor; descendant = parents[descendant]) {
+      replayPath[--i] = descendant;
+    }
+    for (i = 0; i < depth; i++) {
+      int descendant = replayPath[i];
+      game = game.doAction(getAction(descendant));
+      games[descendant] = game;
+      restoredGames++;
+    }
+    return game;
+  }
+
+  /**
+   * Drops the games of all inner nodes but the root. The leaves, which the search expands and
+   * evaluates, keep theirs.
+   *
+   * @return the number of games dropped
+   */
+  int evictGames() {
+    int evicted = 0;
+    for (int node = 0; node < size; node++) {
+      if (node != root && firstChildren[node] != NONE && games[node] != null) {
+        games[node] = null;
+        evicted++;
+      }
+    }
+    return evicted;
+  }
+
+  /**
+   * @return the number of nodes discarded by {@link #prune} since the arena was created
+   */
+  long getPrunedNodes() {
+    return prunedNodes;
+  }
+
+  /**
+   * @return the number of games restored by replaying actions since the arena was created
+   */
+  long getRestoredGames() {
+    return restoredGames;
+  }
+
+  /**
+   * @return the action that led to the node, cached so the search does not have to ask the game
+   */
+  @SuppressWarnings("unchecked")
+  A getAction(int node) {
+    return (A) actions[node];
+  }
+
+  void setGame(int node, Game<A, ?> game) {
+    games[node] = game;
+    setGameDependentFields(node, game);
+  }
+
+  long getHash(int node) {
+    return hashes[node];
+  }
+
+  void setHash(int node, long hash) {
+    hashes[node] = hash;
+  }
+
+  double getUtility(int node) {
+    return utilities[node];
+  }
+
+  void setUtility(int node, double utility) {
+    utilities[node] = utility;
+  }
+
+  double getHeuristic(int node) {
+    return heuristics[node];
+  }
+
+  void setHeuristic(int node, double heuristic) {
+    heuristics[node] = heuristic;
+  }
+
+  /**
+   * Empties the range of the utilities of the evaluated children of a node.
+   */
+  void resetChildUtilities(int node) {
+    minChildUtilities[node] = Double.POSITIVE_INFINITY;
+    maxChildUtilities[node] = Double.NEGATIVE_INFINITY;
+  }
+
+  /**
+   * Widens the range of the utilities of the evaluated children of a node.
+   */
+  void addChildUtility(int node, double utility) {
+    minChildUtilities[node] = Math.min(minChildUtilities[node], utility);
+    maxChildUtilities[node] = Math.max(maxChildUtilities[node], utility);
+  }
+
+  /**
+   * @return the least utility of the children evaluated since the last reset, or positive infinity
+   * if there is none
+   */
+  double getMinChildUtility(int node) {
+    return minChildUtilities[node];
+  }
+
+  /**
+   * @return the greatest utility of the children evaluated since the last reset, or negative
+   * infinity if there is none
+   */
+  double getMaxChildUtility(int node) {
+    return maxChildUtilities[node];
+  }
+
+  /**
+   * Forgets the last completed search of a node, before the node is searched again.
+   */
+  void clearSearch(int node) {
+    searchedDepths[node] = UNSEARCHED;
+    minChildDepths[node] = EXHAUSTED;
+    utilityBounds[node] = TranspositionTable.EMPTY;
+    heuristicBounds[node] = TranspositionTable.EMPTY;
+  }
+
+  /**
+   * Records a completed search of a node.
+   *
+   * @param searchedDepth the number of plies below the node its values are valid for
+   * @param utilityBound the bound type of the utility, see {@link TranspositionTable}
+   * @param heuristicBound the bound type of the heuristic
+   */
+  void setSearch(int node, int searchedDepth, byte utilityBound, byte heuristicBound) {
+    searchedDepths[node] = searchedDepth;
+    utilityBounds[node] = utilityBound;
+    heuristicBounds[node] = heuristicBound;
+  }
+
+  /**
+   * @return the depth of the last completed search of a node, {@link #UNSEARCHED} if there is
+   * none or {@link #EXHAUSTED} if the search reached the end of the game on every line
+   */
+  int getSearchedDepth(int node) {
+    return searchedDepths[node];
+  }
+
+  byte getUtilityBound(int node) {
+    return utilityBounds[node];
+  }
+
+  byte getHeuristicBound(int node) {
+    return heuristicBounds[node];
+  }
+
+  /**
+   * Narrows the least searched depth of the children of a node labeled since its search was
+   * cleared.
+   */
+  void addChildDepth(int node, int searchedDepth) {
+    minChildDepths[node] = Math.min(minChildDepths[node], searchedDepth);
+  }
+
+  /**
+   * @return the least searched depth of the children labeled since the search of the node was
+   * cleared, or {@link #EXHAUSTED} if there is none
+   */
+  int getMinChildDepth(int node) {
+    return minChildDepths[node];
+  }
+
+  /**
+   * Marks a child as the best child of its parent, unmarking its siblings.
+   */
+  void setBestChild(int node, int best) {
+    for (int child = firstChildren[node]; child != NONE; child = nextSiblings[child]) {
+      flags[child] &= ~BEST;
+    }
+    flags[best] |= BEST;
+  }
+
+  /**
+   * @return the child marked by {@link #setBestChild(int, int)} or {@link #NONE}
+   */
+  int getBestChild(int node) {
+    for (int child = firstChildren[node]; child != NONE; child = nextSiblings[child]) {
+      if ((flags[child] & BEST) != 0) {
+        return child;
+      }
+    }
+    return NONE;
+  }
+
+  int getAbsoluteDepth(int node) {
+    return depths[node];
+  }
+
+  int getCurrentPlayer(int node) {
+    return players[node];
+  }
+
+  boolean isEvaluated(int node) {
+    return (flags[node] & EVALUATED) != 0;
+  }
+
+  void setEvaluated(int node, boolean evaluated) {
+    if (evaluated) {
+      flags[node] |= EVALUATED;
+    } else {
+      flags[node] &= ~EVALUATED;
+    }
+  }
+
+  int getParent(int node) {
+    return parents[node];
+  }
+
+  int getFirstChild(int node) {
+    return firstChildren[node];
+  }
+
+  int getNextSibling(int node) {
+    return nextSiblings[node];
+  }
+
+  int getChild(int node, int index) {
+    int child = firstChildren[node];
+    for (int i = 0; i < index; i++) {
+      child = nextSiblings[child];
+    }
+    return child;
+  }
+
+  int getChildCount(int node) {
+    return childCounts[node];
+  }
+
+  boolean isLeaf(int node) {
+    return firstChildren[node] == NONE;
+  }
+
+  boolean isRoot(int node) {
+    return parents[node] == NONE;
+  }
+
+  @SuppressWarnings("unchecked")
+  private ChanceEstimator<A> getChanceEstimator(int node) {
+    return (ChanceEstimator<A>) chanceEstimators[node];
+  }
+
+  /**
+   * @param chanceSampler the sampler to draw larger numbers of samples with, or null to draw them
+   * one after the other
+   */
+  void setChanceSampler(ChanceSampler chanceSampler) {
+    this.chanceSampler = chanceSampler;
+  }
+
+  void simulateDetermineAction(int node) {
+    ChanceEstimator<A> chanceEstimator = getChanceEstimator(node);
+    A action = getGame(node).determineNextAction();
+    if (action != null && chanceEstimator != null) {
+      chanceEstimator.add(action);
+    }
+  }
+
+  /**
+   * Samples the outcome of a chance node until the most frequent outcome is settled, at most the
+   * given number of times. With a chance sampler the samples are drawn in batches, one per thread
+   * of the sampler, and whether the outcome is settled is checked after every batch.
+   *
+   * @return the number of samples drawn
+   */
+  int simulateDetermineAction(int node, int times) {
+    ChanceEstimator<A> chanceEstimator = getChanceEstimator(node);
+    int batch = chanceSampler != null && chanceEstimator != null
+        ? chanceSampler.getThreads() * ChanceSampler.MIN_SAMPLES_PER_THREAD : 1;
+    int i = 0;
+    while (i < times && (chanceEstimator == null || !chanceEstimator.isDecided())) {
+      int samples = Math.min(batch, times - i);
+      sampleDetermineAction(node, samples);
+      i += samples;
+    }
+    return i;
+  }
+
+  /**
+   * Samples the outcome of a chance node the given number of times.
+   */
+  void sampleDetermineAction(int node, int times) {
+    ChanceEstimator<A> chanceEstimator = getChanceEstimator(node);
+    if (chanceSampler == null || chanceEstimator == null || times < 2) {
+      for (int i = 0; i < times; i++) {
+        simulateDetermineAction(node);
+      }
+    } else {
+      chanceEstimator.addAll(chanceSampler.sample(getGame(node), times));
+    }
+  }
+
+  boolean areSimulationsDone(int node) {
+    ChanceEstimator<A> chanceEstimator = getChanceEstimator(node);
+    return chanceEstimator != null && chanceEstimator.getTotal() > 0;
+  }
+
+  /**
+   * @return how often the action of a child was sampled at its parent, a chance node
+   */
+  int getChanceCount(int child) {
+    ChanceEstimator<A> chanceEstimator = getChanceEstimator(parents[child]);
+    return chanceEstimator != null ? chanceEstimator.getCount(getAction(child)) : 0;
+  }
+
+  int getChanceTotal(int node) {
+    ChanceEstimator<A> chanceEstimator = getChanceEstimator(node);
+    return chanceEstimator != null ? chanceEstimator.getTotal() : 0;
+  }
+
+  boolean isMostFrequentAction(int node, A action) {
+    ChanceEstimator<A> chanceEstimator = getChanceEstimator(node);
+    return chanceEstimator != null && chanceEstimator.isMostFrequent(action);
+  }
+
+}
@@ -2,45 +2,144 @@ package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
 
 import at.ac.tuwien.ifs.sge.agent.AbstractGameAgent;
 import at.ac.tuwien.ifs.sge.agent.GameAgent;
+import at.ac.tuwien.ifs.sge.agent.alphabetaagent.AbNodeArena.NodeComparator;
 import at.ac.tuwien.ifs.sge.engine.Logger;
 import at.ac.tuwien.ifs.sge.game.Game;
 import at.ac.tuwien.ifs.sge.util.Util;
-import at.ac.tuwien.ifs.sge.util.tree.DoubleLinkedTree;
-import at.ac.tuwien.ifs.sge.util.tree.Tree;
-import java.util.ArrayDeque;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class AlphaBetaAgent<G extends Game<A, ?>, A> extends AbstractGameAgent<G, A> implements
     GameAgent<G, A> {
 
-  private static int INSTANCE_NR_COUNTER = 1;
+  private static final int DEFAULT_TRANSPOSITION_TABLE_SIZE = Integer
+      .getInteger("alphabetaagent.transpositionTableSize", 1 << 20);
+  private static final int DEFAULT_THREADS = Integer.getInteger("alphabetaagent.threads", 1);
+  private static final int DEFAULT_MAX_TREE_SIZE = Integer
+      .getInteger("alphabetaagent.maxTreeSize", 1 << 21);
+  private static final boolean DEFAULT_LAZY_EXPANSION = Boolean
+      .getBoolean("alphabetaagent.lazyExpansion");
+  private static final boolean DEFAULT_REPLAY_GAMES = Boolean
+      .getBoolean("alphabetaagent.replayGames");
+  private static final boolean DEFAULT_EXPECTIMAX = Boolean
+      .getBoolean("alphabetaagent.expectimax");
+  private static final double DEFAULT_MIN_VALUE = Double
+      .parseDouble(System.getProperty("alphabetaagent.minValue", "-Infinity"));
+  private static final double DEFAULT_MAX_VALUE = Double
+      .parseDouble(System.getProperty("alphabetaagent.maxValue", "Infinity"));
+  private static final boolean DEFAULT_PONDER = Boolean.getBoolean("alphabetaagent.ponder");
+  private static final boolean DEFAULT_PRINCIPAL_VARIATION_SEARCH = Boolean
+      .getBoolean("alphabetaagent.pvs");
+  private static final double DEFAULT_ASPIRATION_WINDOW = Double
+      .parseDouble(System.getProperty("alphabetaagent.aspirationWindow", "Infinity"));
+  private static final int SOFT_DEADLINE_PERCENT = Integer
+      .getInteger("alphabetaagent.softDeadline", 100);
+  private static final int EVALUATION_CACHE_SIZE = Integer
+      .getInteger("alphabetaagent.evaluationCacheSize", 1 << 18);
+  private static final int SOLVED_CACHE_SIZE = Integer
+      .getInteger("alphabetaagent.solvedCacheSize", 1 << 16);
+  private static final int SAMPLING_THREADS = Integer
+      .getInteger("alphabetaagent.samplingThreads", 1);
+  private static final Set<String> SAMPLING_GAMES = Set.copyOf(Arrays.asList(
+      System.getProperty("alphabetaagent.samplingGames", "").trim().split("\\s*,\\s*")));
+  private static final String POSITION_STORE = System.getProperty("alphabetaagent.positionStore");
+  private static final int POSITION_STORE_SIZE = Integer
+      .getInteger("alphabetaagent.positionStoreSize", 1 << 20);
+  private static final int POSITION_STORE_DEPTH = Integer
+      .getInteger("alphabetaagent.positionStoreDepth", 4);
+  private static final Set<String> MAX_N_GAMES = Set.copyOf(
+      Arrays.asList(System.getProperty("alphabetaagent.maxN", "").trim().split("\\s*,\\s*")));
+  private static final double MAX_UTILITY_SUM = Double
+      .parseDouble(System.getProperty("alphabetaagent.maxUtilitySum", "Infinity"));
+  private static final String TRACE_DIRECTORY = System
+      .getProperty("alphabetaagent.traceDirectory");
+  private static final int TRACE_SIZE = Integer.getInteger("alphabetaagent.traceSize", 1 << 20);
+  private static final long TRACE_THRESHOLD = Long.getLong("alphabetaagent.traceThreshold", 0);
+
+  private static final AtomicInteger INSTANCE_NR_COUNTER = new AtomicInteger(1);
 
   private final int instanceNr;
+  private final int helperNr;
 
   private final int maxDepth;
+  private final int maxTreeSize;
+  private final boolean lazyExpansion;
+  private final boolean replayGames;
+  private final boolean expectimax;
+  private final double minValue;
+  private final double maxValue;
+  private final boolean ponder;
+  private final boolean principalVariationSearch;
+  private final double aspirationWindow;
+  private double minWeightedValue;
+  private double maxWeightedValue;
   private int lastDepth;
   private int depth;
 
-  private Comparator<AbGameNode<A>> gameAbNodeUtilityComparator;
-  private Comparator<AbGameNode<A>> gameAbNodeHeuristicComparator;
-  private Comparator<AbGameNode<A>> gameAbNodeEvaluatedComparator;
-  private Comparator<AbGameNode<A>> gameAbNodeComparator;
-  private Comparator<AbGameNode<A>> gameAbNodeMoveComparator;
-
-  private Comparator<Tree<AbGameNode<A>>> gameAbTreeComparator;
-  private Tree<AbGameNode<A>> abTree;
-  private int alphaCutOffs;
-  private int betaCutOffs;
-
-  private int excessTime;
+  private final NodeComparator gameAbNodeUtilityComparator;
+  private final NodeComparator gameAbNodeHeuristicComparator;
+  private final NodeComparator gameAbNodeEvaluatedComparator;
+  private final NodeComparator gameAbNodeComparator;
+  private final NodeComparator gameAbNodeSolvedComparator;
+  private final NodeComparator gameAbNodeMoveComparator;
+  private final NodeComparator gameAbNodeMoveComparatorReversed;
+  private final NodeComparator gameAbNodeOrderComparator;
+  private final NodeComparator gameAbNodeOrderComparatorReversed;
+
+  private final NodeComparator gameAbTreeComparator;
+  private final NodeComparator gameAbNodePromiseComparator;
+  private final AbNodeArena<A> abTree;
+  private final AbFrameStack frames;
+  private final TranspositionTable<A> transpositionTable;
+  private final TranspositionTable.Entry<A> transpositionEntry;
+  private final EvaluationCache evaluationCache;
+  private final ChanceSampler chanceSampler;
+  private final SolvedCache solvedCache;
+  private PositionStore positionStore;
+  private final PositionStore.Entry positionEntry;
+  private MaxNSearch<A> maxNSearch;
+  private StateHasher<A> stateHasher;
+  private long positionSalt;
+  private final SearchTrace trace;
+  private int moveNr;
+  private final SearchStatistics searchStatistics;
+  private final SearchStatistics ponderStatistics;
+  private SearchStatistics statistics;
+  private long restoredGames;
+  private final MoveHistory<A> moveHistory;
+  private long[] orderScores;
+
+  private final TimeManager timeManager;
+  private A completedAction;
+  private boolean isAborted;
   private int averageBranchingCount;
   private double averageBranching;
 
+  private final List<AlphaBetaAgent<G, A>> helpers;
+  private final List<Future<?>> helperSearches;
+  private ExecutorService helperExecutor;
+  private ExecutorService ponderExecutor;
+  private Future<?> ponderSearch;
+  private final Semaphore ponderIterations;
+  private volatile boolean stopped;
+
   public AlphaBetaAgent() {
     this(64, null);
   }
@@ -50,400 +149,1652 @@ public class AlphaBetaAgent<G extends Game<A, ?>, A> extends AbstractGameAgent<G
   }
 
   public AlphaBetaAgent(int maxDepth, Logger log) {
-    super(log);
-    this.maxDepth = maxDepth;
+    this(new Options().maxDepth(maxDepth), log);
+  }
+
+  public AlphaBetaAgent(Options options, Logger log) {
+    this(options, new TranspositionTable<>(options.transpositionTableSize),
+        openPositionStore(log),
+        SAMPLING_THREADS > 1 ? new ChanceSampler(SAMPLING_THREADS, "AlphaBetaAgent-sampler") : null,
+        0, log);
+    for (int i = 1; i < options.threads; i++) {
+      helpers.add(new AlphaBetaAgent<>(options, transpositionTable, positionStore, chanceSampler,
+          i, log));
+    }
+  }
 
-    abTree = new DoubleLinkedTree<>();
+  private AlphaBetaAgent(Options options, TranspositionTable<A> transpositionTable,
+      PositionStore positionStore, ChanceSampler chanceSampler, int helperNr, Logger log) {
+    super(log);
+    this.maxDepth = options.maxDepth;
+    this.maxTreeSize = Math.max(options.maxTreeSize, 2);
+    this.lazyExpansion = options.lazyExpansion;
+    this.replayGames = options.replayGames;
+    this.expectimax = options.expectimax;
+    this.minValue = options.minValue;
+    this.maxValue = options.maxValue;
+    this.ponder = helperNr == 0 && options.ponder;
+    this.principalVariationSearch = options.principalVariationSearch;
+    this.aspirationWindow = options.aspirationWindow;
+    this.helperNr = helperNr;
+
+    abTree = new AbNodeArena<>();
+    this.chanceSampler = chanceSampler;
+    frames = new AbFrameStack();
+    this.transpositionTable = transpositionTable;
+    transpositionEntry = new TranspositionTable.Entry<>();
+    evaluationCache = new EvaluationCache(EVALUATION_CACHE_SIZE);
+    solvedCache = new SolvedCache(SOLVED_CACHE_SIZE);
+    this.positionStore = positionStore;
+    positionEntry = new PositionStore.Entry();
+    trace = helperNr == 0 && TRACE_DIRECTORY != null ? new SearchTrace(TRACE_SIZE) : null;
+    searchStatistics = new SearchStatistics();
+    ponderStatistics = new SearchStatistics();
+    statistics = searchStatistics;
+    moveHistory = new MoveHistory<>();
+    orderScores = new long[64];
+    timeManager = new TimeManager(SOFT_DEADLINE_PERCENT);
+    helpers = new ArrayList<>();
+    helperSearches = new ArrayList<>();
+    ponderIterations = new Semaphore(0);
+
+    gameAbNodeUtilityComparator = (o1, o2) -> Double
+        .compare(abTree.getUtility(o1), abTree.getUtility(o2));
+    gameAbNodeHeuristicComparator = (o1, o2) -> Double
+        .compare(abTree.getHeuristic(o1), abTree.getHeuristic(o2));
+    gameAbNodeEvaluatedComparator = (o1, o2) -> Boolean
+        .compare(abTree.isEvaluated(o1), abTree.isEvaluated(o2));
+    gameAbNodeComparator = gameAbNodeUtilityComparator.thenComparing(gameAbNodeHeuristicComparator);
+    gameAbNodeSolvedComparator = gameAbNodeComparator.thenComparing(this::compareDistances);
+    NodeComparator gameAbNodeGameComparator = (o1, o2) -> gameComparator
+        .compare(abTree.getGame(o1), abTree.getGame(o2));
+    gameAbNodeMoveComparator = gameAbNodeComparator.thenComparing(gameAbNodeGameComparator);
+    gameAbNodeMoveComparatorReversed = gameAbNodeMoveComparator.reversed();
+    NodeComparator gameAbNodeScoreComparator = (o1, o2) -> Long
+        .compare(orderScores[o2], orderScores[o1]);
+    gameAbNodeOrderComparator = gameAbNodeScoreComparator.thenComparing(gameAbNodeMoveComparator);
+    gameAbNodeOrderComparatorReversed = gameAbNodeScoreComparator
+        .thenComparing(gameAbNodeMoveComparatorReversed);
+
+    gameAbTreeComparator = gameAbNodeEvaluatedComparator.thenComparing(gameAbNodeSolvedComparator)
+        .thenComparing(gameAbNodeGameComparator);
+    gameAbNodePromiseComparator = (o1, o2) -> abTree.getCurrentPlayer(abTree.getParent(o1))
+        == playerId ? gameAbNodeComparator.compare(o1, o2) : gameAbNodeComparator.compare(o2, o1);
+
+    this.instanceNr = helperNr == 0 ? INSTANCE_NR_COUNTER.getAndIncrement() : 0;
+  }
 
-    this.instanceNr = INSTANCE_NR_COUNTER++;
+  private static PositionStore openPositionStore(Logger log) {
+    if (POSITION_STORE == null) {
+      return null;
+    }
+    try {
+      return PositionStore.open(Paths.get(POSITION_STORE), POSITION_STORE_SIZE);
+    } catch (IOException | IllegalArgumentException e) {
+      log.warnf("Could not open position store %s: %s", POSITION_STORE, e);
+      return null;
+    }
   }
 
   @Override
   public void setUp(int numberOfPlayers, int playerId) {
+    stopPondering();
     super.setUp(numberOfPlayers, playerId);
 
     abTree.clear();
-    abTree.setNode(new AbGameNode<>());
+    transpositionTable.clear();
+    evaluationCache.clear();
+    solvedCache.clear();
+    ponderStatistics.reset();
+    moveHistory.clear();
+    stateHasher = null;
+    maxNSearch = new MaxNSearch<>(numberOfPlayers, minValue,
+        Math.min(MAX_UTILITY_SUM, numberOfPlayers * maxValue), expectimax, null);
 
     averageBranchingCount = 0;
     averageBranching = 10;
 
-    gameAbNodeUtilityComparator = Comparator.comparingDouble(AbGameNode::getUtility);
-    gameAbNodeHeuristicComparator = Comparator.comparingDouble(AbGameNode::getHeuristic);
-    gameAbNodeEvaluatedComparator = (o1, o2) -> Boolean.compare(o1.isEvaluated(), o2.isEvaluated());
-    gameAbNodeComparator = gameAbNodeUtilityComparator.thenComparing(gameAbNodeHeuristicComparator);
-    gameAbNodeMoveComparator = gameAbNodeComparator
-        .thenComparing((o1, o2) -> gameComparator.compare(o1.getGame(), o2.getGame()));
+    minWeightedValue = 0;
+    maxWeightedValue = 0;
+    for (double weight : minMaxWeights) {
+      if (weight > 0) {
+        minWeightedValue += weight * minValue;
+        maxWeightedValue += weight * maxValue;
+      } else if (weight < 0) {
+        minWeightedValue += weight * maxValue;
+        maxWeightedValue += weight * minValue;
+      }
+    }
+
+    for (AlphaBetaAgent<G, A> helper : helpers) {
+      helper.setUp(numberOfPlayers, playerId);
+    }
+  }
+
+  @Override
+  public void tearDown() {
+    stopPondering();
+    if (ponderExecutor != null) {
+      ponderExecutor.shutdownNow();
+      ponderExecutor = null;
+    }
+    if (helperExecutor != null) {
+      helperExecutor.shutdownNow();
+      helperExecutor = null;
+    }
+    if (chanceSampler != null) {
+      chanceSampler.shutdown();
+    }
+  }
 
-    gameAbTreeComparator = ((Comparator<Tree<AbGameNode<A>>>) (o1, o2) -> gameAbNodeEvaluatedComparator
-        .compare(o1.getNode(), o2.getNode()))
-        .thenComparing(((o1, o2) -> gameAbNodeMoveComparator.compare(o1.getNode(), o2.getNode())));
+  @Override
+  public void destroy() {
+    tearDown();
+    if (positionStore != null && helperNr == 0) {
+      positionStore.close();
+      positionStore = null;
+    }
   }
 
   @Override
   public A computeNextAction(G game, long computationTime, TimeUnit timeUnit) {
+    stopPondering();
+    A action = search(game, computationTime, timeUnit);
+    writeTrace();
+    if (ponder && !isMaxN(game)) {
+      startPondering(game, action);
+    }
+    return action;
+  }
+
+  private A search(G game, long computationTime, TimeUnit timeUnit) {
 
     super.setTimers(computationTime, timeUnit);
+    statistics = searchStatistics;
+    statistics.reset();
+    if (trace != null) {
+      trace.clear(START_TIME);
+    }
+    restoredGames = abTree.getRestoredGames();
+    moveHistory.age();
+    SearchEvent event = new SearchEvent();
+    event.begin();
+    setChanceSampler(game);
+
+    if (isMaxN(game)) {
+      return searchMaxN(game, event);
+    }
 
     log.tra_("Searching for root of tree");
-    boolean foundRoot = Util.findRoot(abTree, game);
+    boolean foundRoot = abTree.findRoot(game);
     if (foundRoot) {
       log._trace(", done.");
     } else {
       log._trace(", failed.");
     }
 
+    if (stateHasher == null) {
+      stateHasher = StateHasher.forGame(game);
+      log.tracef("Hashing states with %s", stateHasher.getClass().getSimpleName());
+      // the values of a state depend on the game, the perspective and how chance is valued
+      positionSalt = StateHasher.mix(StateHasher.mix(StateHasher.mix(
+          game.getClass().getName().hashCode()) ^ numberOfPlayers) ^ playerId)
+          ^ (expectimax ? 1 : 0);
+    }
+    int root = abTree.getRoot();
+    abTree.setHash(root, stateHasher.hash(abTree.getGame(root)));
+    loadPositionStore(root);
+
     log.tra_("Check if best move will eventually end game: ");
-    if (sortPromisingCandidates(abTree, gameAbNodeComparator.reversed())) {
+    if (sortPromisingCandidates(root, gameAbNodeComparator.reversed())) {
       log._trace("Yes");
-      return Collections.max(abTree.getChildren(), gameAbTreeComparator).getNode().getGame()
-          .getPreviousAction();
+      finishStatistics(event);
+      return abTree.getAction(maxChild(root, gameAbTreeComparator));
     }
     log._trace("No");
 
-    lastDepth = 1;
-    excessTime = 2;
-
-    int labeled = 1;
-    log.deb_("Labeling tree 1 time");
-    while (!shouldStopComputation() && (excessTime > 1) && labeled <= lastDepth) {
-      depth = determineDepth();
-      if (labeled > 1) {
-        log._deb_("\r");
-        log.deb_("Labeling tree " + labeled + " times");
-      }
-      log._deb_(" at depth " + depth);
-      alphaCutOffs = 0;
-      betaCutOffs = 0;
-      labelAlphaBetaTree(abTree, depth,
-          Double.NEGATIVE_INFINITY,
-          Double.POSITIVE_INFINITY,
-          Double.NEGATIVE_INFINITY,
-          Double.POSITIVE_INFINITY);
-      excessTime = (int) (TIMEOUT / Math.min(Math.max(System.nanoTime() - START_TIME, 1), TIMEOUT));
-      labeled++;
-    }
-    log._debugf(", done with %d alpha cut-off%s, %d beta cut-off%s and %s left.",
+    startHelpers(game, computationTime, timeUnit);
+    deepen(root, helperNr == 0);
+    stopHelpers();
+    root = abTree.getRoot();
+    finishStatistics(event);
+
+    long alphaCutOffs = statistics.getAlphaCutOffs();
+    long betaCutOffs = statistics.getBetaCutOffs();
+    long transpositionHits = statistics.getTranspositionHits();
+    log._debugf(
+        ", done with %d alpha cut-off%s, %d beta cut-off%s, %d transposition%s and %s left.",
         alphaCutOffs, alphaCutOffs != 1 ? "s" : "",
         betaCutOffs, betaCutOffs != 1 ? "s" : "",
+        transpositionHits, transpositionHits != 1 ? "s" : "",
         Util.convertUnitToReadableString(ACTUAL_TIMEOUT - (System.nanoTime() - START_TIME),
             TimeUnit.NANOSECONDS, timeUnit));
 
     log.tracef("Tree has %d nodes, maximum depth %d, and an average branching factor of %s",
         abTree.size(), depth, Util.convertDoubleToMinimalString(averageBranching, 2));
+    log.tracef("Searched %s", statistics);
+    if (!helpers.isEmpty()) {
+      int helperDepth = 0;
+      for (AlphaBetaAgent<G, A> helper : helpers) {
+        helperDepth = Math.max(helperDepth, helper.depth);
+      }
+      log.tracef("%d helper%s labeled up to depth %d", helpers.size(),
+          helpers.size() != 1 ? "s" : "", helperDepth);
+    }
 
-    if (abTree.isLeaf()) {
+    if (abTree.isLeaf(root)) {
       log.debug("Could not find a move, choosing the next best greedy option.");
       return Collections.max(game.getPossibleActions(),
           (o1, o2) -> gameComparator.compare(game.doAction(o1), game.doAction(o2)));
     }
 
-    if (!abTree.getNode().isEvaluated()) {
-      labelMinMaxTree(abTree, 1);
+    if (isAborted && completedAction != null) {
+      log.debug("Last iteration was aborted, choosing the best move of the one before.");
+      return completedAction;
+    }
+
+    if (!abTree.isEvaluated(root)) {
+      labelMinMaxTree(root, 1);
     }
 
     log.debugf("Utility: %.1f, Heuristic: %.1f",
-        abTree.getNode().getUtility(), abTree.getNode().getHeuristic());
+        abTree.getUtility(root), abTree.getHeuristic(root));
 
-    return Collections.max(abTree.getChildren(), gameAbTreeComparator).getNode().getGame()
-        .getPreviousAction();
+    return abTree.getAction(maxChild(root, gameAbTreeComparator));
   }
 
-  private boolean expandNode(Tree<AbGameNode<A>> tree) {
-    if (tree.isLeaf()) {
-      AbGameNode<A> abGameNode = tree.getNode();
-      Game<A, ?> game = abGameNode.getGame();
-      if (!game.isGameOver()) {
-        Set<A> possibleActions = game.getPossibleActions();
-        averageBranching = (averageBranching * averageBranchingCount++ + possibleActions.size())
-            / averageBranchingCount;
-        for (A possibleAction : possibleActions) {
-          tree.add(new AbGameNode<>(game, possibleAction, minMaxWeights,
-              abGameNode.getAbsoluteDepth() + 1));
+  /**
+   * @return whether the game is searched by max^n instead of the paranoid alpha-beta search, which
+   * is chosen per game class by the property {@code alphabetaagent.maxN}, or for every game with
+   * more than two players by {@code *}
+   */
+  private boolean isMaxN(G game) {
+    return numberOfPlayers > 2 && (MAX_N_GAMES.contains("*")
+        || MAX_N_GAMES.contains(game.getClass().getName())
+        || MAX_N_GAMES.contains(game.getClass().getSimpleName()));
+  }
+
+  /**
+   * Samples the chance nodes of the game on the threads of the chance sampler only if the game's
+   * {@code determineNextAction} is thread-safe, which is declared per game class by the property
+   * {@code alphabetaagent.samplingGames}, or for every game by {@code *}.
+   */
+  private void setChanceSampler(G game) {
+    boolean threadSafe = SAMPLING_GAMES.contains("*")
+        || SAMPLING_GAMES.contains(game.getClass().getName())
+        || SAMPLING_GAMES.contains(game.getClass().getSimpleName());
+    abTree.setChanceSampler(threadSafe ? chanceSampler : null);
+    maxNSearch.setChanceSampler(threadSafe ? chanceSampler : null);
+  }
+
+  /**
+   * Deepens a {@link MaxNSearch} iteratively. It works on the games directly, so neither the tree,
+   * the transposition table nor the helpers are used.
+   */
+  private A searchMaxN(G game, SearchEvent event) {
+    timeManager.start(START_TIME, TIMEOUT);
+    completedAction = null;
+    lastDepth = 0;
+    long shallowCutOffs = 0;
+    long lastBranchCutOffs = 0;
+    while (!shouldStopSearch() && lastDepth < maxDepth
+        && timeManager.shouldStartIteration(System.nanoTime())) {
+      depth = lastDepth + 1;
+      if (trace != null) {
+        trace.record(SearchTrace.ITERATION, 0, depth);
+      }
+      long iterationStart = System.nanoTime();
+      A action = maxNSearch.search(game, depth, completedAction, this::shouldStopSearch);
+      long iterationNanos = System.nanoTime() - iterationStart;
+      long visited = maxNSearch.getNodesVisited();
+      statistics.addIteration(depth, visited, iterationNanos);
+      if (action == null) {
+        break;
+      }
+      timeManager.addIteration(visited, iterationNanos);
+      completedAction = action;
+      lastDepth = depth;
+      shallowCutOffs += maxNSearch.getShallowCutOffs();
+      lastBranchCutOffs += maxNSearch.getLastBranchCutOffs();
+      if (maxNSearch.isExhausted()) {
+        break;
+      }
+    }
+    finishStatistics(event);
+    log.debugf("Max^n searched to depth %d with %d shallow and %d last-branch cut-off%s",
+        lastDepth, shallowCutOffs, lastBranchCutOffs, lastBranchCutOffs != 1 ? "s" : "");
+
+    if (completedAction == null) {
+      log.debug("Could not find a move, choosing the next best greedy option.");
+      return Collections.max(game.getPossibleActions(),
+          (o1, o2) -> gameComparator.compare(game.doAction(o1), game.doAction(o2)));
+    }
+    return completedAction;
+  }
+
+  /**
+   * Writes the trace of the last search to the trace directory, if the search took at least as
+   * long as the trace threshold.
+   */
+  private void writeTrace() {
+    moveNr++;
+    if (trace == null
+        || System.nanoTime() - START_TIME < TimeUnit.MILLISECONDS.toNanos(TRACE_THRESHOLD)) {
+      return;
+    }
+    Path path = Paths.get(TRACE_DIRECTORY, this + "-" + moveNr + ".trace");
+    try {
+      Files.createDirectories(path.getParent());
+      trace.write(path);
+      log.debugf("Wrote search trace %s", path);
+    } catch (IOException e) {
+      log.warnf("Could not write search trace %s: %s", path, e);
+    }
+  }
+
+  private void finishStatistics(SearchEvent event) {
+    statistics.finish(System.nanoTime() - START_TIME, abTree.size(), averageBranching,
+        abTree.getRestoredGames() - restoredGames);
+    event.end();
+    if (event.shouldCommit()) {
+      event.set(toString(), statistics);
+      event.commit();
+    }
+  }
+
+  /**
+   * Labels the tree below the root again and again, each time one ply deeper, until the maximum
+   * depth is reached, the value of the root is proven or the {@link TimeManager} expects the next
+   * iteration not to finish in time.
+   * The best move of every completed iteration is kept, in case the hard deadline aborts the next
+   * one.
+   *
+   * @param isVerbose whether to log the progress and emit events, which only the agent's own
+   * search does, helpers and pondering do not
+   */
+  private void deepen(int root, boolean isVerbose) {
+    lastDepth = 0;
+    completedAction = null;
+    isAborted = false;
+    timeManager.start(START_TIME, TIMEOUT);
+
+    int labeled = 1;
+    if (isVerbose) {
+      log.deb_("Labeling tree 1 time");
+    }
+    while (!shouldStopSearch() && lastDepth < maxDepth && (lastDepth == 0 || !isSolved(root))
+        && timeManager.shouldStartIteration(System.nanoTime())) {
+      depth = Math.min(lastDepth + 1 + helperNr % 2, maxDepth);
+      if (isVerbose) {
+        if (labeled > 1) {
+          log._deb_("\r");
+          log.deb_("Labeling tree " + labeled + " times");
         }
+        log._deb_(" at depth " + depth);
+      }
+      SearchIterationEvent event = new SearchIterationEvent();
+      event.begin();
+      if (trace != null) {
+        trace.record(SearchTrace.ITERATION, 0, depth);
+      }
+      long iterationStart = System.nanoTime();
+      int visited = labelAspirationWindows(root);
+      long iterationNanos = System.nanoTime() - iterationStart;
+      statistics.addIteration(depth, visited, iterationNanos);
+      isAborted = !frames.isEmpty();
+      if (!isAborted) {
+        timeManager.addIteration(visited, iterationNanos);
+        lastDepth = depth;
+        if (!abTree.isLeaf(root)) {
+          completedAction = abTree.getAction(maxChild(root, gameAbTreeComparator));
+        }
+        if (statistics == ponderStatistics) {
+          ponderIterations.release();
+        }
+      }
+      event.end();
+      if (isVerbose && event.shouldCommit()) {
+        event.agent = toString();
+        event.iteration = labeled;
+        event.depth = depth;
+        event.nodesVisited = visited;
+        event.commit();
+      }
+      labeled++;
+      if (abTree.size() >= maxTreeSize) {
+        abTree.prune(maxTreeSize - maxTreeSize / 4, gameAbNodePromiseComparator);
+        root = abTree.getRoot();
+      }
+      if (replayGames) {
+        abTree.evictGames();
       }
     }
-    return !tree.isLeaf();
   }
 
-  private boolean appearsQuiet(Tree<AbGameNode<A>> tree) {
-    if (tree.isRoot()) {
-      return true;
+  private boolean shouldStopSearch() {
+    return stopped || shouldStopComputation();
+  }
+
+  private void startHelpers(G game, long computationTime, TimeUnit timeUnit) {
+    if (helpers.isEmpty()) {
+      return;
+    }
+    if (helperExecutor == null) {
+      String name = this + "-helper";
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(helpers.size(), helpers.size(),
+          1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(), runnable -> {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+      });
+      executor.allowCoreThreadTimeOut(true);
+      helperExecutor = executor;
     }
+    for (AlphaBetaAgent<G, A> helper : helpers) {
+      helper.stopped = false;
+      helper.stateHasher = stateHasher;
+      helper.positionSalt = positionSalt;
+      helperSearches.add(helperExecutor.submit(() -> helper.help(game, computationTime, timeUnit)));
+    }
+  }
+
+  private void stopHelpers() {
+    for (AlphaBetaAgent<G, A> helper : helpers) {
+      helper.stopped = true;
+    }
+    for (Future<?> helperSearch : helperSearches) {
+      try {
+        helperSearch.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        log.warnf("Helper failed: %s", e.getCause());
+      }
+    }
+    helperSearches.clear();
+  }
 
-    List<Tree<AbGameNode<A>>> siblings = tree.getParent().getChildren();
+  /**
+   * Searches as a helper of another agent, which gave this helper its state hasher.
+   */
+  private void help(G game, long computationTime, TimeUnit timeUnit) {
+    setTimers(computationTime, timeUnit);
+    statistics.reset();
+    moveHistory.age();
+    setChanceSampler(game);
+    abTree.findRoot(game);
+    int root = abTree.getRoot();
+    abTree.setHash(root, stateHasher.hash(abTree.getGame(root)));
+    deepen(root, false);
+  }
 
-    double min = Collections.min(siblings, gameAbTreeComparator).getNode().getUtility();
-    double max = Collections.max(siblings, gameAbTreeComparator).getNode().getUtility();
+  /**
+   * Deepens the tree in the background below the state the agent's action leads to, so that the
+   * next search finds the subtree of the opponents' reply already labeled. The tree, the frames and
+   * all other state of a search, the timers included, are handed to the pondering thread and only
+   * taken back once it has stopped, so every method that searches or resets the agent stops
+   * pondering first. Labeling, expansion and chance sampling all check whether the search is
+   * stopped, so that stopping only waits for the node at hand.
+   */
+  private void startPondering(G game, A action) {
+    if (action == null) {
+      return;
+    }
+    @SuppressWarnings("unchecked")
+    G next = (G) game.doAction(action);
+    if (next.isGameOver()) {
+      return;
+    }
+    if (ponderExecutor == null) {
+      String name = this + "-ponder";
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.MINUTES,
+          new LinkedBlockingQueue<>(), runnable -> {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+      });
+      executor.allowCoreThreadTimeOut(true);
+      ponderExecutor = executor;
+    }
+    stopped = false;
+    ponderIterations.drainPermits();
+    ponderSearch = ponderExecutor.submit(() -> ponder(next));
+  }
 
-    return siblings.size() <= 2 || (min < tree.getNode().getGame().getUtilityValue()
-        && tree.getNode().getGame().getUtilityValue() < max);
+  private void ponder(G game) {
+    setTimers(1, TimeUnit.DAYS);
+    statistics = ponderStatistics;
+    abTree.findRoot(game);
+    int root = abTree.getRoot();
+    abTree.setHash(root, stateHasher.hash(abTree.getGame(root)));
+    deepen(root, false);
   }
 
-  private void quiescence(Tree<AbGameNode<A>> tree) {
+  private void stopPondering() {
+    if (ponderSearch == null) {
+      return;
+    }
+    stopped = true;
+    try {
+      ponderSearch.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      log.warnf("Pondering failed: %s", e.getCause());
+    }
+    ponderSearch = null;
+    stopped = false;
+  }
 
-    Tree<AbGameNode<A>> originalTree = tree;
+  boolean isPondering() {
+    return ponderSearch != null;
+  }
 
-    boolean isQuiet = false;
-    AbGameNode<A> node = tree.getNode();
-    while (!node.isEvaluated()) {
-      Game<A, ?> game = node.getGame();
-      if (game.isGameOver() || (game.getCurrentPlayer() >= 0 && (isQuiet || appearsQuiet(tree)))) {
-        node.setUtility(game.getUtilityValue(minMaxWeights));
-        node.setHeuristic(game.getHeuristicValue(minMaxWeights));
-        node.setEvaluated(true);
+  /**
+   * Waits until the pondering started by the last move completed an iteration.
+   *
+   * @return false if it did not within the given time
+   */
+  boolean awaitPonderIteration(long timeout, TimeUnit unit) throws InterruptedException {
+    return ponderIterations.tryAcquire(timeout, unit);
+  }
+
+  /**
+   * @return the statistics of all pondering since the agent was set up
+   */
+  SearchStatistics getPonderStatistics() {
+    return ponderStatistics;
+  }
+
+  AbNodeArena<A> getTree() {
+    return abTree;
+  }
+
+  /**
+   * @return the statistics of the last call to {@link #computeNextAction}, which are overwritten
+   * by the next one
+   */
+  public SearchStatistics getStatistics() {
+    return searchStatistics;
+  }
+
+  /**
+   * @return the statistics of the helpers, of their part of the last call to {@link
+   * #computeNextAction}
+   */
+  List<SearchStatistics> getHelperStatistics() {
+    List<SearchStatistics> helperStatistics = new ArrayList<>(helpers.size());
+    for (AlphaBetaAgent<G, A> helper : helpers) {
+      helperStatistics.add(helper.getStatistics());
+    }
+    return helperStatistics;
+  }
+
+  private int maxChild(int node, NodeComparator comparator) {
+    int max = abTree.getFirstChild(node);
+    for (int child = abTree.getNextSibling(max); child != AbNodeArena.NONE;
+        child = abTree.getNextSibling(child)) {
+      if (comparator.compare(child, max) > 0) {
+        max = child;
+      }
+    }
+    return max;
+  }
+
+  private double initialValue(Game<A, ?> game) {
+    return Double.NEGATIVE_INFINITY * (
+        0 <= game.getCurrentPlayer() && game.getCurrentPlayer() < game.getNumberOfPlayers()
+            ? minMaxWeights[game.getCurrentPlayer()]
+            : (-1));
+  }
+
+  /**
+   * Creates the children of a leaf. With lazy expansion a player's node only gets its first child,
+   * the others are left to {@link #expandNextChild(int)}.
+   *
+   * @return true if the node has children
+   */
+  boolean expandNode(int node) {
+    if (!abTree.isLeaf(node)) {
+      return true;
+    }
+    Game<A, ?> game = abTree.getGame(node);
+    // a stopped search leaves the node a leaf, as if the tree was full
+    if (!game.isGameOver() && !stopped) {
+      Set<A> possibleActions = game.getPossibleActions();
+      boolean isLazy = lazyExpansion && abTree.getCurrentPlayer(node) >= 0;
+      if (abTree.size() + (isLazy ? 1 : possibleActions.size()) > maxTreeSize) {
+        return false;
+      }
+      statistics.countExpansion();
+      averageBranching = (averageBranching * averageBranchingCount++ + possibleActions.size())
+          / averageBranchingCount;
+      if (isLazy) {
+        abTree.setPendingActions(node, orderActions(node, possibleActions.toArray()));
+        expandNextChild(node);
       } else {
-        expandNode(tree);
-        tree.sort(gameAbNodeComparator);
-        tree = tree.getChild(tree.getChildren().size() / 2);
-        isQuiet = true;
+        for (A possibleAction : possibleActions) {
+          addChild(node, game, possibleAction);
+        }
       }
-      node = tree.getNode();
     }
+    return !abTree.isLeaf(node);
+  }
+
+  /**
+   * Creates the next child of a lazily expanded node.
+   *
+   * @return the child or {@link AbNodeArena#NONE} if there is no action left, the tree is full or
+   * the search is stopped
+   */
+  private int expandNextChild(int node) {
+    if (stopped || !abTree.hasPendingActions(node) || abTree.size() >= maxTreeSize) {
+      return AbNodeArena.NONE;
+    }
+    return addChild(node, abTree.getGame(node), abTree.nextPendingAction(node));
+  }
 
-    AbGameNode<A> originalNode = originalTree.getNode();
-    if (!originalNode.isEvaluated()) {
-      originalNode.setUtility(node.getUtility());
-      originalNode.setHeuristic(node.getHeuristic());
-      originalNode.setEvaluated(true);
+  /**
+   * Creates all children of a node, including the ones a lazy expansion left out.
+   *
+   * @return true if the node has children
+   */
+  private boolean expandAllChildren(int node) {
+    if (!expandNode(node)) {
+      return false;
     }
+    while (!stopped && abTree.hasPendingActions(node) && abTree.size() < maxTreeSize) {
+      expandNextChild(node);
+    }
+    return true;
+  }
+
+  private int addChild(int node, Game<A, ?> game, A action) {
+    statistics.countCreation();
+    Game<A, ?> child = game.doAction(action);
+    double value = initialValue(child);
+    return abTree.addChild(node, child, stateHasher.hash(abTree.getHash(node), game, action, child),
+        value, value);
+  }
 
+  /**
+   * Sorts the actions of a lazily expanded node by their killer and history scores, the best
+   * action of a previous search of the same state first.
+   */
+  private Object[] orderActions(int node, Object[] actions) {
+    return moveHistory.order(abTree.getAbsoluteDepth(node), abTree.getCurrentPlayer(node),
+        actions, transpositionTable.getBestAction(abTree.getHash(node)));
   }
 
-  private void evaluateNode(Tree<AbGameNode<A>> tree) {
-    AbGameNode<A> node = tree.getNode();
-    if (tree.isLeaf()) {
-      quiescence(tree);
+  /**
+   * Takes over the values of the last completed search of a node if it was deep enough and its
+   * bounds decide the windows of the frame. The subtree of the node is kept for later searches.
+   *
+   * @return true if the values were taken over
+   */
+  private boolean reuseSearch(int node, int depth, int frame) {
+    if (abTree.isRoot(node)
+        || abTree.getSearchedDepth(node) < depth - abTree.getAbsoluteDepth(node)
+        || !TranspositionTable.isUsable(abTree.getUtilityBound(node), abTree.getUtility(node),
+        frames.getUtilityAlpha(frame), frames.getUtilityBeta(frame))
+        || !TranspositionTable.isUsable(abTree.getHeuristicBound(node), abTree.getHeuristic(node),
+        frames.getHeuristicAlpha(frame), frames.getHeuristicBeta(frame))) {
+      return false;
     }
+    abTree.setEvaluated(node, true);
+    statistics.countReuse();
+    return true;
+  }
 
-    if (!tree.isRoot()) {
-      AbGameNode<A> parent = tree.getParent().getNode();
-      int parentCurrentPlayer = parent.getGame().getCurrentPlayer();
-      double utility = node.getUtility();
-      double heuristic = node.getHeuristic();
-      double parentUtility;
-      double parentHeuristic;
+  private boolean isExact(int node) {
+    return abTree.getUtilityBound(node) == TranspositionTable.EXACT
+        && abTree.getHeuristicBound(node) == TranspositionTable.EXACT;
+  }
 
-      if (!parent.isEvaluated()) {
-        parent.setUtility(utility);
-        parent.setHeuristic(heuristic);
-      } else if (parentCurrentPlayer < 0) {
-        int nrOfSiblings = tree.getParent().getChildren().size();
-        if (!parent.areSimulationDone()) {
-          parent.simulateDetermineAction(
-              Math.max((int) Math.round(nrOfSiblings * simulationTimeFactor()), nrOfSiblings));
+  /**
+   * @return true if every line below the node was searched to the end of the game and its values
+   * are exact
+   */
+  private boolean isSolved(int node) {
+    return abTree.getSearchedDepth(node) == AbNodeArena.EXHAUSTED && isExact(node);
+  }
+
+  /**
+   * Breaks the tie between two solved nodes of equal value by the number of plies until the game is
+   * over: a win is better the sooner it comes and a loss the later it comes. Nodes missing from the
+   * solved cache are counted as if they were over.
+   *
+   * @return a positive number if the first node is better for this agent
+   */
+  private int compareDistances(int node1, int node2) {
+    if (!isSolved(node1) || !isSolved(node2)) {
+      return 0;
+    }
+    double utility = abTree.getUtility(node1);
+    double draw = (minWeightedValue + maxWeightedValue) / 2;
+    if (utility == draw) {
+      return 0;
+    }
+    int slot1 = solvedCache.lookup(abTree.getHash(node1));
+    int slot2 = solvedCache.lookup(abTree.getHash(node2));
+    int distance1 = slot1 == SolvedCache.NONE ? 0 : solvedCache.getDistance(slot1);
+    int distance2 = slot2 == SolvedCache.NONE ? 0 : solvedCache.getDistance(slot2);
+    return utility > draw ? Integer.compare(distance2, distance1)
+        : Integer.compare(distance1, distance2);
+  }
+
+  /**
+   * Labels a node with its proven values if it was solved by an earlier search. The node becomes a
+   * leaf, even at the frontier of the current iteration.
+   *
+   * @return true if the node was solved
+   */
+  private boolean probeSolvedCache(int node) {
+    if (abTree.isRoot(node)) {
+      return false;
+    }
+    int slot = solvedCache.lookup(abTree.getHash(node));
+    if (slot == SolvedCache.NONE) {
+      return false;
+    }
+    abTree.dropChildren(node);
+    abTree.setUtility(node, solvedCache.getUtility(slot));
+    abTree.setHeuristic(node, solvedCache.getHeuristic(slot));
+    abTree.setEvaluated(node, true);
+    abTree.setSearch(node, AbNodeArena.EXHAUSTED, TranspositionTable.EXACT,
+        TranspositionTable.EXACT);
+    statistics.countSolved();
+    return true;
+  }
+
+  /**
+   * Looks up a node in the transposition table, and in the position store if the table has no
+   * usable entry, and labels it with the stored values if they suffice for the given depth and the
+   * windows of the frame. The node becomes a leaf.
+   *
+   * @return true if the entry was used, which is then left in {@link #transpositionEntry}
+   */
+  private boolean probeTranspositionTable(int node, int depth, int frame) {
+    if (abTree.isRoot(node)) {
+      return false;
+    }
+    TranspositionTable.Entry<A> entry = transpositionEntry;
+    boolean isHit = loadUsableTransposition(node, depth, frame)
+        || loadPositionStore(node) && loadUsableTransposition(node, depth, frame);
+    statistics.countTranspositionProbe(isHit);
+    if (!isHit) {
+      return false;
+    }
+    // labels below the node are from older, shallower searches and would contradict the entry
+    abTree.dropChildren(node);
+    abTree.setUtility(node, entry.getUtility());
+    abTree.setHeuristic(node, entry.getHeuristic());
+    abTree.setEvaluated(node, true);
+    abTree.setSearch(node, entry.getDepth(), entry.getUtilityBound(), entry.getHeuristicBound());
+    return true;
+  }
+
+  private boolean loadUsableTransposition(int node, int depth, int frame) {
+    return transpositionTable.load(abTree.getHash(node), transpositionEntry)
+        && transpositionEntry.isUsable(depth - abTree.getAbsoluteDepth(node),
+        frames.getUtilityAlpha(frame), frames.getUtilityBeta(frame),
+        frames.getHeuristicAlpha(frame), frames.getHeuristicBeta(frame));
+  }
+
+  private long positionKey(int node) {
+    return StateHasher.mix(abTree.getHash(node) ^ positionSalt);
+  }
+
+  /**
+   * Copies the entry of a node in the position store into the transposition table, unless the
+   * table already has one which is at least as deep.
+   *
+   * @return true if an entry was copied
+   */
+  private boolean loadPositionStore(int node) {
+    PositionStore.Entry entry = positionEntry;
+    if (positionStore == null || !positionStore.load(positionKey(node), entry)
+        || transpositionTable.load(abTree.getHash(node), transpositionEntry)
+        && transpositionEntry.getDepth() >= entry.getDepth()) {
+      return false;
+    }
+    A bestAction = null;
+    int bestIndex = entry.getBestIndex();
+    if (bestIndex >= 0) {
+      Iterator<A> actions = abTree.getGame(node).getPossibleActions().iterator();
+      for (int i = 0; i <= bestIndex && actions.hasNext(); i++) {
+        bestAction = actions.next();
+      }
+    }
+    transpositionTable.store(abTree.getHash(node), entry.getDepth(),
+        entry.getUtility(), entry.getUtilityBound(),
+        entry.getHeuristic(), entry.getHeuristicBound(), bestAction);
+    return true;
+  }
+
+  private void storePositionStore(int node, int searchedDepth,
+      double utility, byte utilityBound,
+      double heuristic, byte heuristicBound,
+      A bestAction) {
+    int bestIndex = -1;
+    if (bestAction != null) {
+      int i = 0;
+      for (A action : abTree.getGame(node).getPossibleActions()) {
+        if (Objects.equals(action, bestAction)) {
+          bestIndex = i;
+          break;
         }
-        parent.simulateDetermineAction(nrOfSiblings);
-        if (parent.isMostFrequentAction(node.getGame().getPreviousAction())) {
-          parent.setUtility(utility);
-          parent.setHeuristic(heuristic);
+        i++;
+      }
+    }
+    positionStore.store(positionKey(node), searchedDepth,
+        utility, utilityBound, heuristic, heuristicBound, bestIndex);
+  }
+
+  /**
+   * Records the values of a node whose children were labeled at the node and in the transposition
+   * table. Whether they are exact or only bounds follows from the windows the node was searched
+   * with. They are valid to the depth of the search, or deeper if every child was searched deeper.
+   *
+   * @return true if the utility is only a bound
+   */
+  private boolean storeSearch(int node, int depth, int frame) {
+    double utility = abTree.getUtility(node);
+    double heuristic = abTree.getHeuristic(node);
+    int currentPlayer = abTree.getCurrentPlayer(node);
+    boolean isExact = currentPlayer < 0 && !expectimax;
+    byte utilityBound = isExact ? TranspositionTable.EXACT
+        : boundOf(utility, frames.getInitialUtilityAlpha(frame),
+            frames.getInitialUtilityBeta(frame));
+    byte heuristicBound = isExact ? TranspositionTable.EXACT
+        : boundOf(heuristic, frames.getInitialHeuristicAlpha(frame),
+            frames.getInitialHeuristicBeta(frame));
+    boolean isBound = utilityBound != TranspositionTable.EXACT;
+    // a window closed from the start, open only in the other value, makes even bounds unreliable
+    boolean isWindowClosed = !isExact
+        && frames.getInitialUtilityAlpha(frame) >= frames.getInitialUtilityBeta(frame);
+    if (!abTree.isEvaluated(node) || abTree.isLeaf(node) || isWindowClosed) {
+      abTree.clearSearch(node);
+      return isBound;
+    }
+    int searchedDepth = depth - abTree.getAbsoluteDepth(node);
+    // the value of a chance node is an estimate which further samples refine
+    if (currentPlayer >= 0) {
+      int minChildDepth = abTree.getMinChildDepth(node);
+      searchedDepth = minChildDepth == AbNodeArena.EXHAUSTED ? AbNodeArena.EXHAUSTED
+          : Math.max(searchedDepth, minChildDepth + 1);
+    }
+    abTree.setSearch(node, searchedDepth, utilityBound, heuristicBound);
+    A bestAction = null;
+    if (currentPlayer >= 0) {
+      int best = AbNodeArena.NONE;
+      for (int child = abTree.getFirstChild(node); child != AbNodeArena.NONE;
+          child = abTree.getNextSibling(child)) {
+        if (abTree.isEvaluated(child) && (best == AbNodeArena.NONE || (currentPlayer == playerId)
+            == (gameAbNodeSolvedComparator.compare(child, best) > 0))) {
+          best = child;
         }
-      } else {
-        parentUtility = parent.getUtility();
-        parentHeuristic = parent.getHeuristic();
-        if (parentCurrentPlayer == playerId) {
-          parent.setUtility(Math.max(parentUtility, utility));
-          parent.setHeuristic(Math.max(parentHeuristic, heuristic));
-        } else {
-          parent.setUtility(Math.min(parentUtility, utility));
-          parent.setHeuristic(Math.min(parentHeuristic, heuristic));
+      }
+      if (best != AbNodeArena.NONE) {
+        bestAction = abTree.getAction(best);
+        abTree.setBestChild(node, best);
+        if (isSolved(node)) {
+          // a best child missing from the cache is over, or was solved by the table, which is
+          // counted as if it was over
+          int slot = solvedCache.lookup(abTree.getHash(best));
+          solvedCache.store(abTree.getHash(node), utility, heuristic,
+              1 + (slot == SolvedCache.NONE ? 0 : solvedCache.getDistance(slot)));
         }
       }
-      parent.setEvaluated(true);
     }
-
+    transpositionTable.store(abTree.getHash(node), searchedDepth,
+        utility, utilityBound, heuristic, heuristicBound, bestAction);
+    if (positionStore != null && searchedDepth >= POSITION_STORE_DEPTH) {
+      storePositionStore(node, searchedDepth,
+          utility, utilityBound, heuristic, heuristicBound, bestAction);
+    }
+    return isBound;
   }
 
-  private void labelMinMaxTree(Tree<AbGameNode<A>> tree, int depth) {
+  private static byte boundOf(double value, double alpha, double beta) {
+    if (value <= alpha) {
+      return TranspositionTable.UPPER_BOUND;
+    }
+    if (value >= beta) {
+      return TranspositionTable.LOWER_BOUND;
+    }
+    return TranspositionTable.EXACT;
+  }
 
-    Deque<Tree<AbGameNode<A>>> stack = new ArrayDeque<>();
-    stack.push(tree);
+  private boolean appearsQuiet(int node) {
+    if (abTree.isRoot(node)) {
+      return true;
+    }
 
-    Tree<AbGameNode<A>> lastParent = null;
+    int parent = abTree.getParent(node);
+    if (abTree.getChildCount(parent) <= 2) {
+      return true;
+    }
+    double utility = evaluate(node, EvaluationCache.PLAYER_UTILITY);
+    return abTree.getMinChildUtility(parent) < utility
+        && utility < abTree.getMaxChildUtility(parent);
+  }
 
-    depth = Math.max(tree.getNode().getAbsoluteDepth() + depth, depth);
+  /**
+   * Looks a value of the game of a node up in the evaluation cache and evaluates the game on a
+   * miss.
+   *
+   * @param kind {@link EvaluationCache#UTILITY}, {@link EvaluationCache#HEURISTIC} or {@link
+   * EvaluationCache#PLAYER_UTILITY}
+   */
+  private double evaluate(int node, int kind) {
+    int slot = evaluationCache.lookup(abTree.getHash(node), kind);
+    statistics.countEvaluationProbe(slot >= 0);
+    if (slot >= 0) {
+      return evaluationCache.get(slot, kind);
+    }
+    Game<A, ?> game = abTree.getGame(node);
+    double value;
+    if (kind == EvaluationCache.UTILITY) {
+      value = game.getUtilityValue(minMaxWeights);
+    } else if (kind == EvaluationCache.HEURISTIC) {
+      value = game.getHeuristicValue(minMaxWeights);
+    } else {
+      value = game.getUtilityValue();
+    }
+    evaluationCache.store(-slot - 1, kind, value);
+    return value;
+  }
 
-    int checkDepth = 0;
+  private void quiescence(int node) {
 
-    while (!stack.isEmpty() && (checkDepth++ % 31 != 0 || !shouldStopComputation())) {
+    int originalNode = node;
+    if (abTree.isEvaluated(originalNode)) {
+      return;
+    }
 
-      tree = stack.peek();
+    boolean isQuiet = false;
+    int searchedDepth = 0;
+    while (!abTree.isEvaluated(node)) {
+      Game<A, ?> game = abTree.getGame(node);
+      if (game.isGameOver() || (game.getCurrentPlayer() >= 0 && (isQuiet || appearsQuiet(node)))
+          || !expandAllChildren(node)) {
+        if (node == originalNode && game.isGameOver()) {
+          searchedDepth = AbNodeArena.EXHAUSTED;
+        }
+        abTree.setUtility(node, evaluate(node, EvaluationCache.UTILITY));
+        abTree.setHeuristic(node, evaluate(node, EvaluationCache.HEURISTIC));
+        abTree.setEvaluated(node, true);
+        statistics.countEvaluation();
+      } else {
+        statistics.countQuiescenceNode();
+        node = abTree.selectChild(node, abTree.getChildCount(node) / 2, gameAbNodeComparator);
+        isQuiet = true;
+      }
+    }
 
-      if (lastParent == tree || tree.getNode().getAbsoluteDepth() >= depth || !expandNode(tree)) {
-        evaluateNode(tree);
+    if (!abTree.isEvaluated(originalNode)) {
+      abTree.setUtility(originalNode, abTree.getUtility(node));
+      abTree.setHeuristic(originalNode, abTree.getHeuristic(node));
+      abTree.setEvaluated(originalNode, true);
+    }
+    abTree.setSearch(originalNode, searchedDepth, TranspositionTable.EXACT,
+        TranspositionTable.EXACT);
 
-        stack.pop();
-        lastParent = tree.getParent();
-      } else {
+  }
 
-        pushChildrenOntoStack(tree, stack);
+  /**
+   * Labels a node by quiescence search if it is a leaf and folds its values into its parent. A
+   * value of a player's parent whose window is already closed is final, the siblings searched
+   * after that only serve the other value.
+   *
+   * @param frame the frame of the node
+   */
+  private void evaluateNode(int node, int frame) {
+    if (abTree.isLeaf(node)) {
+      quiescence(node);
+    }
 
+    if (!abTree.isRoot(node)) {
+      int parent = abTree.getParent(node);
+      int parentCurrentPlayer = abTree.getCurrentPlayer(parent);
+      double utility = abTree.getUtility(node);
+      double heuristic = abTree.getHeuristic(node);
+      double parentUtility;
+      double parentHeuristic;
+      abTree.addChildUtility(parent, utility);
+      abTree.addChildDepth(parent, abTree.getSearchedDepth(node));
+
+      if (expectimax && parentCurrentPlayer < 0 && frame > 0) {
+        addOutcome(node, frame - 1);
+      } else if (!abTree.isEvaluated(parent)) {
+        abTree.setUtility(parent, utility);
+        abTree.setHeuristic(parent, heuristic);
+      } else if (parentCurrentPlayer < 0) {
+        int nrOfSiblings = abTree.getChildCount(parent);
+        int samples = 0;
+        if (!abTree.areSimulationsDone(parent)) {
+          samples += abTree.simulateDetermineAction(parent,
+              Math.max((int) Math.round(nrOfSiblings * simulationTimeFactor()), nrOfSiblings));
+        }
+        samples += abTree.simulateDetermineAction(parent, nrOfSiblings);
+        statistics.countChanceSamples(samples);
+        if (abTree.isMostFrequentAction(parent, abTree.getAction(node))) {
+          abTree.setUtility(parent, utility);
+          abTree.setHeuristic(parent, heuristic);
+        }
+      } else {
+        parentUtility = abTree.getUtility(parent);
+        parentHeuristic = abTree.getHeuristic(parent);
+        int parentFrame = frame - 1;
+        if (parentFrame < 0
+            || frames.getUtilityAlpha(parentFrame) < frames.getUtilityBeta(parentFrame)) {
+          abTree.setUtility(parent, parentCurrentPlayer == playerId
+              ? Math.max(parentUtility, utility) : Math.min(parentUtility, utility));
+        }
+        if (parentFrame < 0
+            || frames.getHeuristicAlpha(parentFrame) < frames.getHeuristicBeta(parentFrame)) {
+          abTree.setHeuristic(parent, parentCurrentPlayer == playerId
+              ? Math.max(parentHeuristic, heuristic) : Math.min(parentHeuristic, heuristic));
+        }
       }
+      abTree.setEvaluated(parent, true);
+    }
+
+  }
 
+  /**
+   * Samples the outcomes of a chance node before its outcomes are searched by expectimax.
+   */
+  private void sampleOutcomes(int node) {
+    int nrOfChildren = abTree.getChildCount(node);
+    int samples = nrOfChildren;
+    if (!abTree.areSimulationsDone(node)) {
+      samples = Math.max((int) Math.round(nrOfChildren * simulationTimeFactor()), nrOfChildren);
     }
+    abTree.sampleDetermineAction(node, samples);
+    statistics.countChanceSamples(samples);
+  }
 
+  /**
+   * Pushes an outcome of a chance node with the windows of Star1. The outcome's value has to leave
+   * room for the chance node's average to fall into its window, even if all outcomes not searched
+   * yet take the worst or the best value possible.
+   */
+  private void pushOutcome(int frame, int node, int child) {
+    int total = abTree.getChanceTotal(node);
+    int weight = abTree.getChanceCount(child);
+    int remaining = total - frames.getWeight(frame) - weight;
+    double utilitySum = frames.getUtilitySum(frame);
+    double heuristicSum = frames.getHeuristicSum(frame);
+    frames.push(child,
+        Math.max(minWeightedValue, (frames.getUtilityAlpha(frame) * total - utilitySum
+            - weighted(remaining, maxWeightedValue)) / weight),
+        Math.min(maxWeightedValue, (frames.getUtilityBeta(frame) * total - utilitySum
+            - weighted(remaining, minWeightedValue)) / weight),
+        Math.max(minWeightedValue, (frames.getHeuristicAlpha(frame) * total - heuristicSum
+            - weighted(remaining, maxWeightedValue)) / weight),
+        Math.min(maxWeightedValue, (frames.getHeuristicBeta(frame) * total - heuristicSum
+            - weighted(remaining, minWeightedValue)) / weight));
   }
 
-  private void pushChildrenOntoStack
-      (Tree<AbGameNode<A>> tree, Deque<Tree<AbGameNode<A>>> stack) {
-    if (tree.getNode().getGame().getCurrentPlayer() == playerId) {
-      tree.sort(gameAbNodeMoveComparator);
-    } else {
-      tree.sort(gameAbNodeMoveComparator.reversed());
+  /**
+   * Folds the values of a searched outcome into the average of its parent, a chance node. A value
+   * whose window is already closed is final.
+   */
+  private void addOutcome(int node, int parentFrame) {
+    int parent = abTree.getParent(node);
+    frames.addOutcome(parentFrame, abTree.getChanceCount(node), abTree.getUtility(node),
+        abTree.getHeuristic(node));
+    int weight = frames.getWeight(parentFrame);
+    if (weight == 0) {
+      return;
     }
+    if (frames.getUtilityAlpha(parentFrame) < frames.getUtilityBeta(parentFrame)) {
+      abTree.setUtility(parent, frames.getUtilitySum(parentFrame) / weight);
+    }
+    if (frames.getHeuristicAlpha(parentFrame) < frames.getHeuristicBeta(parentFrame)) {
+      abTree.setHeuristic(parent, frames.getHeuristicSum(parentFrame) / weight);
+    }
+  }
 
-    for (Tree<AbGameNode<A>> child : tree.getChildren()) {
-      stack.push(child);
+  /**
+   * Closes a window of a chance node once the average of its outcomes is bound to fall outside of
+   * it, whatever the outcomes not searched yet are worth. The node is labeled with that bound.
+   */
+  private void closeChanceWindows(int frame, int node) {
+    int total = abTree.getChanceTotal(node);
+    if (total == 0) {
+      return;
     }
+    int remaining = total - frames.getWeight(frame);
+    double utilityAlpha = frames.getUtilityAlpha(frame);
+    double utilityBeta = frames.getUtilityBeta(frame);
+    if (utilityAlpha < utilityBeta) {
+      double upper = (frames.getUtilitySum(frame) + weighted(remaining, maxWeightedValue)) / total;
+      double lower = (frames.getUtilitySum(frame) + weighted(remaining, minWeightedValue)) / total;
+      if (upper <= utilityAlpha) {
+        frames.setUtilityBeta(frame, upper);
+        abTree.setUtility(node, upper);
+      } else if (lower >= utilityBeta) {
+        frames.setUtilityAlpha(frame, lower);
+        abTree.setUtility(node, lower);
+      }
+    }
+    double heuristicAlpha = frames.getHeuristicAlpha(frame);
+    double heuristicBeta = frames.getHeuristicBeta(frame);
+    if (heuristicAlpha < heuristicBeta) {
+      double upper = (frames.getHeuristicSum(frame)
+          + weighted(remaining, maxWeightedValue)) / total;
+      double lower = (frames.getHeuristicSum(frame)
+          + weighted(remaining, minWeightedValue)) / total;
+      if (upper <= heuristicAlpha) {
+        frames.setHeuristicBeta(frame, upper);
+        abTree.setHeuristic(node, upper);
+      } else if (lower >= heuristicBeta) {
+        frames.setHeuristicAlpha(frame, lower);
+        abTree.setHeuristic(node, lower);
+      }
+    }
+  }
+
+  /**
+   * @return the product of a weight and a bound, zero for a weight of zero even if the bound is
+   * infinite
+   */
+  private static double weighted(int weight, double bound) {
+    return weight == 0 ? 0 : weight * bound;
+  }
+
+  private int labelMinMaxTree(int node, int depth) {
+    return labelTree(node, depth,
+        Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+        Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+        false);
   }
 
-  private void labelAlphaBetaTree(Tree<AbGameNode<A>> tree, int depth,
+  int labelAlphaBetaTree(int node, int depth,
       double utilityAlpha, double utilityBeta,
       double heuristicAlpha, double heuristicBeta
   ) {
+    return labelTree(node, depth, utilityAlpha, utilityBeta, heuristicAlpha, heuristicBeta, true);
+  }
 
-    Deque<Tree<AbGameNode<A>>> stack = new ArrayDeque<>();
-    Deque<Double> utilityAlphas = new ArrayDeque<>();
-    Deque<Double> heuristicAlphas = new ArrayDeque<>();
-    Deque<Double> utilityBetas = new ArrayDeque<>();
-    Deque<Double> heuristicBetas = new ArrayDeque<>();
-
-    stack.push(tree);
-    utilityAlphas.push(utilityAlpha);
-    utilityBetas.push(utilityBeta);
-    heuristicAlphas.push(heuristicAlpha);
-    heuristicBetas.push(heuristicBeta);
+  /**
+   * Labels the tree below a node depth first, using the frame stack of the agent instead of
+   * recursion.
+   *
+   * @param prune whether to skip the remaining children of a node once both of its windows are
+   * closed
+   * @return the number of nodes visited
+   */
+  private int labelTree(int node, int depth,
+      double utilityAlpha, double utilityBeta,
+      double heuristicAlpha, double heuristicBeta,
+      boolean prune) {
 
-    depth = Math.max(tree.getNode().getAbsoluteDepth() + depth, depth);
+    frames.clear();
+    frames.push(node, utilityAlpha, utilityBeta, heuristicAlpha, heuristicBeta);
 
-    Tree<AbGameNode<A>> lastParent = null;
+    int rootDepth = abTree.getAbsoluteDepth(node);
+    depth = Math.max(rootDepth + depth, depth);
 
+    int visited = 0;
     int checkDepth = 0;
-    while (!stack.isEmpty() && (checkDepth++ % 31 != 0 || !shouldStopComputation())) {
-
-      tree = stack.peek();
-
-      if (lastParent == tree || tree.getNode().getAbsoluteDepth() >= depth || !expandNode(tree)) {
-        evaluateNode(tree);
+    while (!frames.isEmpty() && !stopped
+        && (checkDepth++ % 31 != 0 || !shouldStopComputation())) {
+
+      int frame = frames.top();
+      node = frames.getNode(frame);
+      int child = frames.getCursor(frame);
+
+      if (child == AbFrameStack.UNVISITED) {
+        visited++;
+        boolean isFrontier = abTree.getAbsoluteDepth(node) >= depth;
+        boolean isSearched = probeSolvedCache(node)
+            || !isFrontier && (reuseSearch(node, depth, frame)
+            || probeTranspositionTable(node, depth, frame));
+        if (isFrontier || isSearched || !expandNode(node)) {
+          if (trace != null) {
+            int ply = abTree.getAbsoluteDepth(node);
+            trace.record(SearchTrace.EVALUATE, ply - rootDepth, depth - ply);
+          }
+          if (isFrontier && !abTree.isLeaf(node) && !isExact(node)) {
+            // a bound of an older search only holds for the windows it was searched with
+            abTree.setSearch(node, 0, TranspositionTable.EXACT, TranspositionTable.EXACT);
+          }
+          evaluateNode(node, frame);
+          if (isSearched && abTree.getUtilityBound(node) != TranspositionTable.EXACT) {
+            abTree.setEvaluated(node, false);
+          }
+          boolean isScout = frames.isScout(frame);
+          frames.pop();
+          if (!isScout || !researchScout(node)) {
+            updateWindows(node);
+          }
+          continue;
+        }
+        if (trace != null) {
+          int ply = abTree.getAbsoluteDepth(node);
+          trace.record(SearchTrace.EXPAND, ply - rootDepth, depth - ply);
+        }
+        abTree.setEvaluated(node, false);
+        abTree.resetChildUtilities(node);
+        abTree.clearSearch(node);
+        if (expectimax && abTree.getCurrentPlayer(node) < 0) {
+          sampleOutcomes(node);
+          closeChanceWindows(frame, node);
+        }
+        child = orderChildren(node);
+      }
 
-        if (tree.isRoot()
-            || tree.getParent().getNode().getGame().getCurrentPlayer() == playerId) {
-          utilityAlpha = Math.max(utilityAlphas.peek(), tree.getNode().getUtility());
-          heuristicAlpha = Math.max(heuristicAlphas.peek(), tree.getNode().getHeuristic());
-          utilityBeta = utilityBetas.peek();
-          heuristicBeta = heuristicBetas.peek();
+      int currentPlayer = abTree.getCurrentPlayer(node);
+      boolean isExpectimax = expectimax && currentPlayer < 0;
+      boolean hasNext = child != AbNodeArena.NONE || abTree.hasPendingActions(node);
+      if (hasNext && prune && (currentPlayer >= 0 || isExpectimax)
+          && frames.isWindowClosed(frame)) {
+        int ply = abTree.getAbsoluteDepth(node);
+        int cause = frames.getChild(frame);
+        if (isExpectimax) {
+          statistics.countCutOff(ply - rootDepth,
+              frames.getUtilityAlpha(frame) > frames.getInitialUtilityAlpha(frame),
+              cause == abTree.getFirstChild(node));
         } else {
-          utilityAlpha = utilityAlphas.peek();
-          heuristicAlpha = heuristicAlphas.peek();
-          utilityBeta = Math.min(utilityBetas.peek(), tree.getNode().getUtility());
-          heuristicBeta = Math.min(heuristicBetas.peek(), tree.getNode().getUtility());
+          statistics.countCutOff(ply - rootDepth, currentPlayer == playerId,
+              cause == abTree.getFirstChild(node));
+          moveHistory.recordCutOff(ply, currentPlayer,
+              cause == AbNodeArena.NONE ? null : abTree.getAction(cause), depth - ply);
         }
-
-        stack.pop();
-        if (lastParent == tree) {
-          utilityAlphas.pop();
-          utilityBetas.pop();
-          heuristicAlphas.pop();
-          heuristicBetas.pop();
+        if (trace != null) {
+          trace.record(SearchTrace.CUT_OFF, ply - rootDepth, depth - ply);
         }
+        frames.setCutOff(frame, true);
+        child = AbNodeArena.NONE;
+      } else if (child == AbNodeArena.NONE) {
+        child = expandNextChild(node);
+      } else if (isExpectimax && abTree.getChanceCount(child) == 0) {
+        // outcomes are ordered by their counts, the ones never sampled weigh nothing
+        child = AbNodeArena.NONE;
+      }
 
-        lastParent = tree.getParent();
-      } else if ((utilityAlpha < utilityBeta && heuristicAlpha < heuristicBeta) || (
-          tree.getParent() != null
-              && tree.getParent().getNode().getGame().getCurrentPlayer() < 0)) {
-        pushChildrenOntoStack(tree, stack);
-        utilityAlphas.push(utilityAlpha);
-        heuristicAlphas.push(heuristicAlpha);
-        utilityBetas.push(utilityBeta);
-        heuristicBetas.push(heuristicBeta);
-      } else if (tree.getParent() != null
-          && tree.getParent().getNode().getGame().getCurrentPlayer() >= 0) {
-        if (tree.isRoot()
-            || tree.getParent().getNode().getGame().getCurrentPlayer() == playerId) {
-          betaCutOffs++;
+      if (child == AbNodeArena.NONE) {
+        // a node whose remaining children did not fit into the tree has no bound worth storing
+        boolean isTruncated = !frames.isCutOff(frame) && abTree.hasPendingActions(node);
+        boolean isBound = !isTruncated && storeSearch(node, depth, frame);
+        evaluateNode(node, frame);
+        if (isTruncated || isBound || frames.isCutOff(frame)) {
+          abTree.setEvaluated(node, false);
+        }
+        boolean isScout = frames.isScout(frame);
+        frames.pop();
+        if (!isScout || !researchScout(node)) {
+          updateWindows(node);
+        }
+      } else {
+        frames.setChild(frame, child);
+        frames.setCursor(frame, abTree.getNextSibling(child));
+        if (isExpectimax) {
+          pushOutcome(frame, node, child);
+        } else if (currentPlayer < 0) {
+          frames.push(child,
+              Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+              Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+        } else if (principalVariationSearch && !expectimax && prune
+            && abTree.isEvaluated(node)) {
+          // with expectimax, null windows would leave the outcomes below chance nodes no window
+          pushScout(frame, node, child);
         } else {
-          alphaCutOffs++;
+          frames.push(child,
+              frames.getUtilityAlpha(frame), frames.getUtilityBeta(frame),
+              frames.getHeuristicAlpha(frame), frames.getHeuristicBeta(frame));
         }
-        tree.getNode().setEvaluated(false);
-        tree.dropChildren();
-        stack.pop();
       }
     }
 
+    return visited;
   }
 
   /**
-   * Logarithmic fit {{1,10},{60, 100}}.
+   * Labels the tree to the current depth with the aspiration windows around the value the root
+   * got in the last iteration, and again with infinite windows if the root's value turns out to
+   * be a bound.
    *
-   * @return a factor determining how many simulations can be done.
+   * @return the number of nodes visited
    */
-  private double simulationTimeFactor() {
-    return 21.9815D * Math.log(1.57606D * TimeUnit.NANOSECONDS.toSeconds(nanosLeft()));
+  private int labelAspirationWindows(int root) {
+    double utility = abTree.getUtility(root);
+    double heuristic = abTree.getHeuristic(root);
+    if (lastDepth > 0 && Double.isFinite(aspirationWindow) && abTree.isEvaluated(root)
+        && Double.isFinite(utility) && Double.isFinite(heuristic)) {
+      double utilityAlpha = utility - aspirationWindow;
+      double utilityBeta = utility + aspirationWindow;
+      double heuristicAlpha = heuristic - aspirationWindow;
+      double heuristicBeta = heuristic + aspirationWindow;
+      int visited = labelAlphaBetaTree(root, depth,
+          utilityAlpha, utilityBeta, heuristicAlpha, heuristicBeta);
+      utility = abTree.getUtility(root);
+      heuristic = abTree.getHeuristic(root);
+      if (!frames.isEmpty() || abTree.isEvaluated(root)
+          && utilityAlpha < utility && utility < utilityBeta
+          && heuristicAlpha < heuristic && heuristic < heuristicBeta) {
+        return visited;
+      }
+      statistics.countAspirationFailure();
+      return visited + labelAlphaBetaTree(root, depth,
+          Double.NEGATIVE_INFINITY,
+          Double.POSITIVE_INFINITY,
+          Double.NEGATIVE_INFINITY,
+          Double.POSITIVE_INFINITY);
+    }
+    return labelAlphaBetaTree(root, depth,
+        Double.NEGATIVE_INFINITY,
+        Double.POSITIVE_INFINITY,
+        Double.NEGATIVE_INFINITY,
+        Double.POSITIVE_INFINITY);
   }
 
   /**
-   * Exponential fit {{4,10},{40,2}}.
-   *
-   * @return a factor depending on the average branching factor determining how deep the minmax
-   * search can go.
+   * Pushes a child of a player's node which is not the first one searched with null windows at
+   * the best value of the node so far, for principal variation search.
    */
-  private double branchingFactor() {
-    return 11.9581D * Math.exp(-0.0447066D * averageBranching);
+  private void pushScout(int frame, int node, int child) {
+    double utilityAlpha = frames.getUtilityAlpha(frame);
+    double utilityBeta = frames.getUtilityBeta(frame);
+    double heuristicAlpha = frames.getHeuristicAlpha(frame);
+    double heuristicBeta = frames.getHeuristicBeta(frame);
+    int scout;
+    if (abTree.getCurrentPlayer(node) == playerId) {
+      scout = frames.push(child,
+          utilityAlpha, Math.min(Math.nextUp(utilityAlpha), utilityBeta),
+          heuristicAlpha, Math.min(Math.nextUp(heuristicAlpha), heuristicBeta));
+    } else {
+      scout = frames.push(child,
+          Math.max(Math.nextDown(utilityBeta), utilityAlpha), utilityBeta,
+          Math.max(Math.nextDown(heuristicBeta), heuristicAlpha), heuristicBeta);
+    }
+    frames.setScout(scout, true);
   }
 
   /**
-   * Logarithmic fit {{10, 0.5}, {40,1}}
+   * Searches a child whose frame was just popped again with the windows of its parent, if it was
+   * searched with null windows and found better for the player to move than its siblings so far,
+   * but not good enough for a cut-off.
    *
-   * @return a factor depending on the nanos left determining how deep the minmax search can go.
+   * @return whether the child is searched again, in which case the windows of the parent are left
+   * as they are
    */
-  private double timeFactor() {
-    return 0.360674D * Math.log(0.4D * TimeUnit.NANOSECONDS.toSeconds(nanosLeft()));
+  private boolean researchScout(int node) {
+    if (abTree.isEvaluated(node)) {
+      return false;
+    }
+    int frame = frames.top();
+    double utility = abTree.getUtility(node);
+    double heuristic = abTree.getHeuristic(node);
+    double utilityAlpha = frames.getUtilityAlpha(frame);
+    double utilityBeta = frames.getUtilityBeta(frame);
+    double heuristicAlpha = frames.getHeuristicAlpha(frame);
+    double heuristicBeta = frames.getHeuristicBeta(frame);
+    // a value outside of the windows either loses against a sibling or cuts the parent off
+    if (!(utilityAlpha < utility && utility < utilityBeta
+        || heuristicAlpha < heuristic && heuristic < heuristicBeta)) {
+      return false;
+    }
+    statistics.countScoutFailure();
+    frames.push(node, utilityAlpha, utilityBeta, heuristicAlpha, heuristicBeta);
+    return true;
   }
 
   /**
-   * Logarithmic fit {{2, 1}, {12, 3}}
-   *
-   * @return a factor depending on how fast the previous calculation went.
+   * Narrows the windows of the topmost frame, the frame of the parent, by the value of a node
+   * that was just labeled.
    */
-  private double excessTimeBonus() {
-    return 1.11622D * Math.log(1.22474D * excessTime);
+  private void updateWindows(int node) {
+    if (frames.isEmpty()) {
+      return;
+    }
+    int frame = frames.top();
+    int parent = frames.getNode(frame);
+    int currentPlayer = abTree.getCurrentPlayer(parent);
+    if (currentPlayer < 0) {
+      if (expectimax) {
+        closeChanceWindows(frame, parent);
+      }
+    } else if (currentPlayer == playerId) {
+      double utility = abTree.getUtility(node);
+      double heuristic = abTree.getHeuristic(node);
+      if (abTree.isRoot(parent)) {
+        // siblings tying with the best move are tie-broken by the game, so they have to be exact
+        utility = Math.nextDown(utility);
+        heuristic = Math.nextDown(heuristic);
+      }
+      frames.setUtilityAlpha(frame, Math.max(frames.getUtilityAlpha(frame), utility));
+      frames.setHeuristicAlpha(frame, Math.max(frames.getHeuristicAlpha(frame), heuristic));
+    } else if (currentPlayer >= 0) {
+      frames.setUtilityBeta(frame,
+          Math.min(frames.getUtilityBeta(frame), abTree.getUtility(node)));
+      frames.setHeuristicBeta(frame,
+          Math.min(frames.getHeuristicBeta(frame), abTree.getHeuristic(node)));
+    }
   }
 
-  private int determineDepth() {
-
-    depth = (int) Math.max(Math.round(branchingFactor() * timeFactor()), 2);
-    depth = Math.max(lastDepth + (int) Math.round(excessTimeBonus()), depth);
-    depth = Math.min(depth, maxDepth);
+  /**
+   * Sorts the children of a node so that the most promising child for the player of the node
+   * comes first, preceded only by the best child of the last search of the node, or else of a
+   * previous search of the same state. The children of a player's node are sorted by their killer
+   * and history scores first and by their values only among equal scores. At the root this puts the
+   * principal variation of the last iteration first.
+   *
+   * @return the first child
+   */
+  int orderChildren(int node) {
+    int currentPlayer = abTree.getCurrentPlayer(node);
+    if (currentPlayer < 0 && expectimax) {
+      for (int child = abTree.getFirstChild(node); child != AbNodeArena.NONE;
+          child = abTree.getNextSibling(child)) {
+        if (child >= orderScores.length) {
+          orderScores = Arrays.copyOf(orderScores, Math.max(child + 1, orderScores.length << 1));
+        }
+        orderScores[child] = abTree.getChanceCount(child);
+      }
+      abTree.sortChildren(node, gameAbNodeOrderComparator);
+    } else if (currentPlayer < 0) {
+      abTree.sortChildren(node, gameAbNodeMoveComparator);
+    } else {
+      int ply = abTree.getAbsoluteDepth(node);
+      for (int child = abTree.getFirstChild(node); child != AbNodeArena.NONE;
+          child = abTree.getNextSibling(child)) {
+        if (child >= orderScores.length) {
+          orderScores = Arrays.copyOf(orderScores, Math.max(child + 1, orderScores.length << 1));
+        }
+        orderScores[child] = moveHistory.score(ply, currentPlayer, abTree.getAction(child));
+      }
+      if (currentPlayer == playerId) {
+        abTree.sortChildren(node, gameAbNodeOrderComparatorReversed);
+      } else {
+        abTree.sortChildren(node, gameAbNodeOrderComparator);
+      }
+    }
 
-    lastDepth = depth;
+    int best = abTree.getBestChild(node);
+    if (best != AbNodeArena.NONE) {
+      abTree.moveToFront(best);
+      return best;
+    }
+    A bestAction = transpositionTable.getBestAction(abTree.getHash(node));
+    if (bestAction != null) {
+      for (int child = abTree.getFirstChild(node); child != AbNodeArena.NONE;
+          child = abTree.getNextSibling(child)) {
+        if (bestAction.equals(abTree.getAction(child))) {
+          abTree.moveToFront(child);
+          break;
+        }
+      }
+    }
+    return abTree.getFirstChild(node);
+  }
 
-    return Math.min(depth, maxDepth);
+  /**
+   * Logarithmic fit {{1,10},{60, 100}}. A stopped search only samples every outcome once.
+   *
+   * @return a factor determining how many simulations can be done.
+   */
+  private double simulationTimeFactor() {
+    if (stopped) {
+      return 0;
+    }
+    return 21.9815D * Math.log(1.57606D * TimeUnit.NANOSECONDS.toSeconds(nanosLeft()));
   }
 
-  private boolean sortPromisingCandidates(Tree<AbGameNode<A>> tree,
-      Comparator<AbGameNode<A>> comparator) {
+  private boolean sortPromisingCandidates(int node, NodeComparator comparator) {
 
     boolean isDetermined = true;
-    while (!tree.isLeaf() && tree.getNode().isEvaluated() && isDetermined) {
-      isDetermined = isDetermined && tree.getChildren().stream()
-          .allMatch(c -> c.getNode().getGame().getCurrentPlayer() >= 0);
-      if (tree.getNode().getGame().getCurrentPlayer() == playerId) {
-        tree.sort(gameAbNodeEvaluatedComparator.reversed().thenComparing(comparator));
+    while (!abTree.isLeaf(node) && abTree.isEvaluated(node) && isDetermined) {
+      for (int child = abTree.getFirstChild(node); isDetermined && child != AbNodeArena.NONE;
+          child = abTree.getNextSibling(child)) {
+        isDetermined = abTree.getCurrentPlayer(child) >= 0;
+      }
+      if (abTree.getCurrentPlayer(node) == playerId) {
+        abTree.sortChildren(node,
+            gameAbNodeEvaluatedComparator.reversed().thenComparing(comparator));
       } else {
-        tree.sort(gameAbNodeEvaluatedComparator.reversed().thenComparing(comparator.reversed()));
+        abTree.sortChildren(node,
+            gameAbNodeEvaluatedComparator.reversed().thenComparing(comparator.reversed()));
       }
-      tree = tree.getChild(0);
+      node = abTree.getFirstChild(node);
     }
 
-    return tree.getNode().isEvaluated() && tree.getNode().getGame().isGameOver();
+    return abTree.isEvaluated(node) && abTree.getGame(node).isGameOver();
 
   }
 
   @Override
   public String toString() {
-    if (instanceNr > 1 || AlphaBetaAgent.INSTANCE_NR_COUNTER > 2) {
+    if (instanceNr > 1 || INSTANCE_NR_COUNTER.get() > 2) {
       return String.format("%s%d", "AlphaBetaAgent#", instanceNr);
     }
     return "AlphaBetaAgent";
   }
+
+  /**
+   * The options of an agent, each of which defaults to the system property documented in the
+   * README. An agent copies them when it is created, so they can be changed and reused afterwards.
+   */
+  public static final class Options {
+
+    private int maxDepth = 64;
+    private int transpositionTableSize = DEFAULT_TRANSPOSITION_TABLE_SIZE;
+    private int threads = DEFAULT_THREADS;
+    private int maxTreeSize = DEFAULT_MAX_TREE_SIZE;
+    private boolean lazyExpansion = DEFAULT_LAZY_EXPANSION;
+    private boolean replayGames = DEFAULT_REPLAY_GAMES;
+    private boolean expectimax = DEFAULT_EXPECTIMAX;
+    private double minValue = DEFAULT_MIN_VALUE;
+    private double maxValue = DEFAULT_MAX_VALUE;
+    private boolean ponder = DEFAULT_PONDER;
+    private boolean principalVariationSearch = DEFAULT_PRINCIPAL_VARIATION_SEARCH;
+    private double aspirationWindow = DEFAULT_ASPIRATION_WINDOW;
+
+    public Options maxDepth(int maxDepth) {
+      this.maxDepth = maxDepth;
+      return this;
+    }
+
+    public Options transpositionTableSize(int transpositionTableSize) {
+      this.transpositionTableSize = transpositionTableSize;
+      return this;
+    }
+
+    /**
+     * @param threads the number of threads searching for a move. All but one are helpers which
+     * share the transposition table with the agent but label trees of their own, one ply deeper
+     * every other helper, so that the agent finds more of its tree already labeled.
+     */
+    public Options threads(int threads) {
+      this.threads = threads;
+      return this;
+    }
+
+    /**
+     * @param maxTreeSize the number of nodes the tree may have. Once it is reached no node is
+     * expanded anymore, and between two labelings the least promising subtrees are pruned.
+     */
+    public Options maxTreeSize(int maxTreeSize) {
+      this.maxTreeSize = maxTreeSize;
+      return this;
+    }
+
+    /**
+     * @param lazyExpansion whether the children of a player's node are created one at a time when
+     * the search descends into them, instead of all at once. The actions of the children yet to be
+     * created are ordered by their killer and history scores, so a cut-off saves creating the
+     * rest.
+     */
+    public Options lazyExpansion(boolean lazyExpansion) {
+      this.lazyExpansion = lazyExpansion;
+      return this;
+    }
+
+    /**
+     * @param replayGames whether inner nodes drop their games after every labeling of the tree and
+     * replay the actions from their closest ancestor with a game when they are needed again. Only
+     * the root and the leaves keep their games, trading calls to {@link Game#doAction} for memory.
+     */
+    public Options replayGames(boolean replayGames) {
+      this.replayGames = replayGames;
+      return this;
+    }
+
+    /**
+     * @param expectimax whether a chance node is valued by the average of its outcomes, weighted
+     * by how often they were sampled, instead of by its most frequent outcome
+     */
+    public Options expectimax(boolean expectimax) {
+      this.expectimax = expectimax;
+      return this;
+    }
+
+    /**
+     * @param minValue a lower bound of the utilities and heuristics of every player
+     * @param maxValue an upper bound of the utilities and heuristics of every player. With finite
+     * bounds the outcomes of a chance node are searched with windows narrowed by Star1, so that
+     * the remaining outcomes are skipped once the average cannot reach into the window anymore.
+     */
+    public Options valueBounds(double minValue, double maxValue) {
+      this.minValue = minValue;
+      this.maxValue = maxValue;
+      return this;
+    }
+
+    /**
+     * @param ponder whether the agent keeps deepening its tree in the background on the opponents'
+     * time, below the state its move leads to, until the next call to {@link
+     * AlphaBetaAgent#computeNextAction}
+     */
+    public Options ponder(boolean ponder) {
+      this.ponder = ponder;
+      return this;
+    }
+
+    /**
+     * @param principalVariationSearch whether only the first child of a player's node is searched
+     * with the windows of the node, and the others with null windows at the best value so far,
+     * which only tell whether they are better. Those that are get searched again with the full
+     * windows. It is not used with expectimax.
+     */
+    public Options principalVariationSearch(boolean principalVariationSearch) {
+      this.principalVariationSearch = principalVariationSearch;
+      return this;
+    }
+
+    /**
+     * @param aspirationWindow the distance of the windows every iteration but the first starts
+     * with from the utility and heuristic of the root found by the last one. If the root's value
+     * falls outside, the iteration is searched again with infinite windows. Infinity disables them.
+     */
+    public Options aspirationWindow(double aspirationWindow) {
+      this.aspirationWindow = aspirationWindow;
+      return this;
+    }
+
+  }
 }
@@ -0,0 +1,100 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import at.ac.tuwien.ifs.sge.game.Game;
+
+/**
+ * Hashes the board and the current player of a game. Works for every game whose board implements
+ * {@link Object#hashCode()} by value, including (nested) arrays, but costs time linear in the size
+ * of the board. The elements of arrays are folded into all 64 bits of the key one by one, so boards
+ * that are arrays do not collide as often as their 32 bit {@code hashCode} would.
+ *
+ * @param <A> the type of actions
+ */
+public class BoardStateHasher<A> implements StateHasher<A> {
+
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+  @Override
+  public long hash(Game<A, ?> game) {
+    return step(hashBoard(game.getBoard()), game.getCurrentPlayer());
+  }
+
+  /**
+   * @return the key of a board, of its elements if it is an array
+   */
+  static long hashBoard(Object board) {
+    return hash(GOLDEN_GAMMA, board);
+  }
+
+  private static long step(long h, long value) {
+    return StateHasher.mix(h + GOLDEN_GAMMA + value);
+  }
+
+  private static long hash(long h, Object o) {
+    if (o instanceof Object[]) {
+      Object[] array = (Object[]) o;
+      for (Object element : array) {
+        h = hash(h, element);
+      }
+      return step(h, array.length);
+    }
+    if (o instanceof int[]) {
+      int[] array = (int[]) o;
+      for (int element : array) {
+        h = step(h, element);
+      }
+      return step(h, array.length);
+    }
+    if (o instanceof long[]) {
+      long[] array = (long[]) o;
+      for (long element : array) {
+        h = step(h, element);
+      }
+      return step(h, array.length);
+    }
+    if (o instanceof byte[]) {
+      byte[] array = (byte[]) o;
+      for (byte element : array) {
+        h = step(h, element);
+      }
+      return step(h, array.length);
+    }
+    if (o instanceof short[]) {
+      short[] array = (short[]) o;
+      for (short element : array) {
+        h = step(h, element);
+      }
+      return step(h, array.length);
+    }
+    if (o instanceof char[]) {
+      char[] array = (char[]) o;
+      for (char element : array) {
+        h = step(h, element);
+      }
+      return step(h, array.length);
+    }
+    if (o instanceof boolean[]) {
+      boolean[] array = (boolean[]) o;
+      for (boolean element : array) {
+        h = step(h, element ? 1 : 0);
+      }
+      return step(h, array.length);
+    }
+    if (o instanceof double[]) {
+      double[] array = (double[]) o;
+      for (double element : array) {
+        h = step(h, Double.doubleToLongBits(element));
+      }
+      return step(h, array.length);
+    }
+    if (o instanceof float[]) {
+      float[] array = (float[]) o;
+      for (float element : array) {
+        h = step(h, Float.floatToIntBits(element));
+      }
+      return step(h, array.length);
+    }
+    return step(h, o == null ? 0 : o.hashCode());
+  }
+
+}
@@ -0,0 +1,157 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import java.util.Arrays;
+
+/**
+ * Counts the sampled outcomes of a chance node. Every distinct outcome gets a slot with a
+ * primitive counter, found by an open addressing table over the outcomes' hash codes. The total,
+ * the most frequent outcome and the count of the runner-up are maintained on every sample, so
+ * asking for the most frequent outcome or whether it is settled takes constant time.
+ *
+ * @param <A> the type of actions
+ */
+class ChanceEstimator<A> {
+
+  /**
+   * Two-sided 99% quantile of the normal distribution.
+   */
+  static final double CONFIDENCE = 2.576D;
+
+  private static final int NONE = -1;
+
+  private Object[] outcomes;
+  private int[] counts;
+  private int[] table;
+  private int slots;
+  private int total;
+  private int mostFrequent = NONE;
+  private int runnerUpCount;
+
+  ChanceEstimator() {
+    this(8);
+  }
+
+  ChanceEstimator(int capacity) {
+    capacity = Math.max(capacity, 2);
+    outcomes = new Object[capacity];
+    counts = new int[capacity];
+    table = new int[Integer.highestOneBit(capacity - 1) << 2];
+  }
+
+  private static int spread(int h) {
+    h *= 0x9e3779b9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * @return the slot of an outcome or the free table index to insert it at, encoded as
+   * {@code -index - 1}
+   */
+  private int find(Object outcome) {
+    int mask = table.length - 1;
+    for (int i = spread(outcome.hashCode()) & mask; ; i = (i + 1) & mask) {
+      int slot = table[i] - 1;
+      if (slot < 0) {
+        return -i - 1;
+      }
+      if (outcome.equals(outcomes[slot])) {
+        return slot;
+      }
+    }
+  }
+
+  private int insert(Object outcome, int index) {
+    if (slots == outcomes.length) {
+      outcomes = Arrays.copyOf(outcomes, slots << 1);
+      counts = Arrays.copyOf(counts, slots << 1);
+    }
+    int slot = slots++;
+    outcomes[slot] = outcome;
+    table[index] = slot + 1;
+    if (slots << 1 > table.length) {
+      table = new int[table.length << 1];
+      int mask = table.length - 1;
+      for (int s = 0; s < slots; s++) {
+        int i = spread(outcomes[s].hashCode()) & mask;
+        while (table[i] != 0) {
+          i = (i + 1) & mask;
+        }
+        table[i] = s + 1;
+      }
+    }
+    return slot;
+  }
+
+  /**
+   * Counts one sample of an outcome.
+   */
+  void add(A outcome) {
+    add(outcome, 1);
+  }
+
+  /**
+   * Counts the samples of another estimator, e.g. one filled by another thread.
+   */
+  @SuppressWarnings("unchecked")
+  void addAll(ChanceEstimator<A> other) {
+    for (int slot = 0; slot < other.slots; slot++) {
+      add((A) other.outcomes[slot], other.counts[slot]);
+    }
+  }
+
+  private void add(A outcome, int samples) {
+    int slot = find(outcome);
+    if (slot < 0) {
+      slot = insert(outcome, -slot - 1);
+    }
+    int count = counts[slot] += samples;
+    total += samples;
+    if (mostFrequent == NONE) {
+      mostFrequent = slot;
+    } else if (slot != mostFrequent) {
+      if (count > counts[mostFrequent]) {
+        runnerUpCount = counts[mostFrequent];
+        mostFrequent = slot;
+      } else if (count > runnerUpCount) {
+        runnerUpCount = count;
+      }
+    }
+  }
+
+  int getTotal() {
+    return total;
+  }
+
+  int getCount(A outcome) {
+    int slot = find(outcome);
+    return slot < 0 ? 0 : counts[slot];
+  }
+
+  @SuppressWarnings("unchecked")
+  A getMostFrequent() {
+    return mostFrequent == NONE ? null : (A) outcomes[mostFrequent];
+  }
+
+  /**
+   * @return true if no outcome was sampled more often than the given one
+   */
+  boolean isMostFrequent(A outcome) {
+    return mostFrequent != NONE && getCount(outcome) == counts[mostFrequent];
+  }
+
+  /**
+   * The difference of the counts of the two most frequent outcomes has a variance of at most the
+   * sum of both counts. Once it exceeds that many standard deviations further samples are unlikely
+   * to change the most frequent outcome.
+   *
+   * @return true if the most frequent outcome is settled
+   */
+  boolean isDecided() {
+    if (mostFrequent == NONE) {
+      return false;
+    }
+    int lead = counts[mostFrequent] - runnerUpCount;
+    return lead > CONFIDENCE * Math.sqrt(counts[mostFrequent] + runnerUpCount);
+  }
+
+}
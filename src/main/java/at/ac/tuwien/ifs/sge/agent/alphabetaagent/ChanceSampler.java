@@ -0,0 +1,103 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import at.ac.tuwien.ifs.sge.game.Game;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the outcome of a chance node on several threads at once, for games whose {@link
+ * Game#determineNextAction()} is expensive. Every thread counts its samples in an estimator of its
+ * own, which are added up once all of them are done, so the threads share nothing while sampling.
+ * The calling thread takes a share of the samples itself, the others go to a pool of daemon
+ * threads which is shared by every search of an agent.
+ *
+ * <p>The game's {@code determineNextAction} is called concurrently on the same instance, so the
+ * sampler may only be used for games which declare it thread-safe.
+ */
+class ChanceSampler {
+
+  /**
+   * Fewer samples per thread are drawn faster than they are handed over.
+   */
+  static final int MIN_SAMPLES_PER_THREAD = 16;
+
+  private final int threads;
+  private final String name;
+  private ThreadPoolExecutor executor;
+
+  /**
+   * @param threads the number of threads sampling, including the calling one
+   * @param name the name of the threads of the pool
+   */
+  ChanceSampler(int threads, String name) {
+    this.threads = Math.max(threads, 1);
+    this.name = name;
+  }
+
+  int getThreads() {
+    return threads;
+  }
+
+  private synchronized ThreadPoolExecutor getExecutor() {
+    if (executor == null) {
+      executor = new ThreadPoolExecutor(threads - 1, threads - 1,
+          1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(), runnable -> {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+      });
+      executor.allowCoreThreadTimeOut(true);
+    }
+    return executor;
+  }
+
+  /**
+   * Samples the outcome of a game the given number of times.
+   *
+   * @return the counts of the outcomes
+   */
+  <A> ChanceEstimator<A> sample(Game<A, ?> game, int times) {
+    int tasks = Math.max(Math.min(threads, times / MIN_SAMPLES_PER_THREAD), 1);
+    List<Future<ChanceEstimator<A>>> shares = new ArrayList<>(tasks - 1);
+    for (int task = 1; task < tasks; task++) {
+      int share = times * (task + 1) / tasks - times * task / tasks;
+      shares.add(getExecutor().submit(() -> sampleSequentially(game, share)));
+    }
+    ChanceEstimator<A> chanceEstimator = sampleSequentially(game, times / tasks);
+    for (Future<ChanceEstimator<A>> share : shares) {
+      try {
+        chanceEstimator.addAll(share.get());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        share.cancel(true);
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Sampling failed", e.getCause());
+      }
+    }
+    return chanceEstimator;
+  }
+
+  static <A> ChanceEstimator<A> sampleSequentially(Game<A, ?> game, int times) {
+    ChanceEstimator<A> chanceEstimator = new ChanceEstimator<>();
+    for (int i = 0; i < times; i++) {
+      A action = game.determineNextAction();
+      if (action != null) {
+        chanceEstimator.add(action);
+      }
+    }
+    return chanceEstimator;
+  }
+
+  synchronized void shutdown() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+}
@@ -0,0 +1,160 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import java.util.Arrays;
+
+/**
+ * A bounded cache of the values of games keyed by 64 bit state hashes, so that a state reached
+ * again in a later iteration or by a transposition is not evaluated again. Every entry holds the
+ * weighted utility, the weighted heuristic and the utility of the current player, each filled in
+ * when it is first asked for.
+ *
+ * <p>Entries live in a fixed number of slots found by an open addressing table. Once all slots are
+ * taken the next entry replaces one chosen by CLOCK: a hand sweeps over the slots and takes the
+ * first one which was not hit since the hand last passed it.
+ */
+class EvaluationCache {
+
+  static final int UTILITY = 0;
+  static final int HEURISTIC = 1;
+  static final int PLAYER_UTILITY = 2;
+
+  private static final int KINDS = 3;
+
+  private final int capacity;
+  private final long[] keys;
+  private final double[] values;
+  private final byte[] present;
+  private final boolean[] referenced;
+  private final int[] table;
+  private final int mask;
+
+  private int size;
+  private int hand;
+  private long probes;
+  private long hits;
+
+  EvaluationCache(int capacity) {
+    this.capacity = Math.max(capacity, 1);
+    keys = new long[this.capacity];
+    values = new double[this.capacity * KINDS];
+    present = new byte[this.capacity];
+    referenced = new boolean[this.capacity];
+    table = new int[Integer.highestOneBit(this.capacity) << 2];
+    mask = table.length - 1;
+  }
+
+  private int indexOf(long key) {
+    int h = (int) (key ^ (key >>> 32)) * 0x9e3779b9;
+    return (h ^ (h >>> 16)) & mask;
+  }
+
+  /**
+   * @return the slot of a key or the free table index to insert it at, encoded as
+   * {@code -index - 1}
+   */
+  private int find(long key) {
+    for (int i = indexOf(key); ; i = (i + 1) & mask) {
+      int slot = table[i] - 1;
+      if (slot < 0) {
+        return -i - 1;
+      }
+      if (keys[slot] == key) {
+        return slot;
+      }
+    }
+  }
+
+  /**
+   * Looks up a value of a state. On a miss the state gets a slot, evicting another state if the
+   * cache is full, which the value should be stored into.
+   *
+   * @param key the hash of the state
+   * @param kind {@link #UTILITY}, {@link #HEURISTIC} or {@link #PLAYER_UTILITY}
+   * @return the slot of the state if the value is cached, otherwise {@code -slot - 1}
+   */
+  int lookup(long key, int kind) {
+    probes++;
+    int slot = find(key);
+    if (slot < 0) {
+      return -insert(key) - 1;
+    }
+    if ((present[slot] & (1 << kind)) == 0) {
+      return -slot - 1;
+    }
+    hits++;
+    referenced[slot] = true;
+    return slot;
+  }
+
+  double get(int slot, int kind) {
+    return values[slot * KINDS + kind];
+  }
+
+  void store(int slot, int kind, double value) {
+    values[slot * KINDS + kind] = value;
+    present[slot] |= 1 << kind;
+  }
+
+  private int insert(long key) {
+    int slot;
+    if (size < capacity) {
+      slot = size++;
+    } else {
+      while (referenced[hand]) {
+        referenced[hand] = false;
+        hand = (hand + 1) % capacity;
+      }
+      slot = hand;
+      hand = (hand + 1) % capacity;
+      remove(slot);
+    }
+    keys[slot] = key;
+    present[slot] = 0;
+    table[-find(key) - 1] = slot + 1;
+    return slot;
+  }
+
+  /**
+   * Frees a table index and moves the entries probed past it back, so that no lookup stops early.
+   */
+  private void remove(int slot) {
+    int i = indexOf(keys[slot]);
+    while (table[i] != slot + 1) {
+      i = (i + 1) & mask;
+    }
+    for (int j = (i + 1) & mask; table[j] != 0; j = (j + 1) & mask) {
+      int home = indexOf(keys[table[j] - 1]);
+      if (((j - home) & mask) >= ((j - i) & mask)) {
+        table[i] = table[j];
+        i = j;
+      }
+    }
+    table[i] = 0;
+  }
+
+  void clear() {
+    Arrays.fill(table, 0);
+    Arrays.fill(referenced, false);
+    size = 0;
+    hand = 0;
+    probes = 0;
+    hits = 0;
+  }
+
+  int size() {
+    return size;
+  }
+
+  int capacity() {
+    return capacity;
+  }
+
+  long getProbes() {
+    return probes;
+  }
+
+  long getHits() {
+    return hits;
+  }
+
+}
@@ -0,0 +1,315 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import at.ac.tuwien.ifs.sge.game.Game;
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A depth-first max^n search for games with more than two players. Instead of assuming that every
+ * opponent minimises the value of the agent, every node is valued by a vector with the utility and
+ * the heuristic of each player, and the player to move picks the child which is best for itself.
+ * Ties of the utility are broken by the heuristic, like the comparators of the agent do.
+ *
+ * <p>Max^n cannot prune like alpha-beta, but if the utilities are bounded below by {@code
+ * minValue} and their sum by {@code maxSum} it can still cut off a node once the player to move
+ * has found so much for itself that what is left for the others cannot beat what their own
+ * alternatives above already guarantee:
+ * <ul>
+ *   <li>shallow pruning compares against the best value the player to move at the parent has
+ *   found so far, and</li>
+ *   <li>last-branch pruning compares against the grandparent, if the node is the last child of
+ *   its parent and the parent's best so far is already worse for the grandparent's player.</li>
+ * </ul>
+ * Both only cut off nodes which are strictly worse for the player choosing between them, so that
+ * no tie is cut off which the heuristic would break. Without both bounds nothing is pruned. Chance
+ * nodes are sampled and valued by their most frequent outcome, or by the average over the sampled
+ * outcomes if {@code expectimax} is set; no bound is carried across them.
+ *
+ * @param <A> the type of actions
+ */
+class MaxNSearch<A> {
+
+  /**
+   * The number of samples drawn per possible outcome of a chance node.
+   */
+  static final int CHANCE_SAMPLES = 4;
+
+  private static final int CHECK_INTERVAL = 1 << 8;
+
+  private final int numberOfPlayers;
+  private final double minValue;
+  private final double maxSum;
+  private final boolean expectimax;
+  private ChanceSampler chanceSampler;
+
+  private double[][] utilities = new double[0][];
+  private double[][] heuristics = new double[0][];
+  private double[][] sums = new double[0][];
+  private int[] movers = new int[0];
+  private boolean[] hasBest = new boolean[0];
+  private boolean[] isLastBranch = new boolean[0];
+
+  private BooleanSupplier shouldStop;
+  private boolean aborted;
+  private boolean exhausted;
+  private long nodesVisited;
+  private long shallowCutOffs;
+  private long lastBranchCutOffs;
+  private A bestAction;
+
+  /**
+   * @param chanceSampler the sampler to draw the outcomes of chance nodes with, or null to draw
+   * them on the calling thread
+   */
+  MaxNSearch(int numberOfPlayers, double minValue, double maxSum, boolean expectimax,
+      ChanceSampler chanceSampler) {
+    this.numberOfPlayers = numberOfPlayers;
+    this.minValue = minValue;
+    this.maxSum = maxSum;
+    this.expectimax = expectimax;
+    this.chanceSampler = chanceSampler;
+  }
+
+  /**
+   * @param chanceSampler the sampler to draw the outcomes of chance nodes with, or null to draw
+   * them on the calling thread
+   */
+  void setChanceSampler(ChanceSampler chanceSampler) {
+    this.chanceSampler = chanceSampler;
+  }
+
+  /**
+   * @return whether shallow and last-branch pruning are possible with the given bounds
+   */
+  boolean canPrune() {
+    return numberOfPlayers > 1 && Double.isFinite(minValue) && Double.isFinite(maxSum);
+  }
+
+  /**
+   * Searches a game to the given depth.
+   *
+   * @param firstAction the action to search first at the root, usually the best one of the last
+   * iteration, or null
+   * @param shouldStop polled every few nodes, aborts the search once it returns true
+   * @return the best action at the root for the player to move, or null if the search was aborted
+   * or there is nothing to choose
+   */
+  A search(Game<A, ?> game, int depth, A firstAction, BooleanSupplier shouldStop) {
+    this.shouldStop = shouldStop;
+    aborted = false;
+    exhausted = true;
+    nodesVisited = 0;
+    shallowCutOffs = 0;
+    lastBranchCutOffs = 0;
+    bestAction = null;
+    ensureCapacity(depth + 1);
+    label(game, 0, depth, firstAction);
+    return aborted ? null : bestAction;
+  }
+
+  private void ensureCapacity(int plies) {
+    if (utilities.length >= plies) {
+      return;
+    }
+    int from = utilities.length;
+    utilities = Arrays.copyOf(utilities, plies);
+    heuristics = Arrays.copyOf(heuristics, plies);
+    sums = Arrays.copyOf(sums, plies);
+    for (int ply = from; ply < plies; ply++) {
+      utilities[ply] = new double[numberOfPlayers];
+      heuristics[ply] = new double[numberOfPlayers];
+      sums[ply] = new double[numberOfPlayers << 1];
+    }
+    movers = Arrays.copyOf(movers, plies);
+    hasBest = Arrays.copyOf(hasBest, plies);
+    isLastBranch = Arrays.copyOf(isLastBranch, plies);
+  }
+
+  /**
+   * Labels the value of a node into the vectors of its ply.
+   */
+  private void label(Game<A, ?> game, int ply, int depth, A firstAction) {
+    nodesVisited++;
+    if ((nodesVisited & (CHECK_INTERVAL - 1)) == 0 && shouldStop.getAsBoolean()) {
+      aborted = true;
+      return;
+    }
+
+    movers[ply] = game.getCurrentPlayer();
+    hasBest[ply] = false;
+    if (game.isGameOver() || depth <= 0) {
+      if (!game.isGameOver()) {
+        exhausted = false;
+      }
+      evaluate(game, ply);
+      return;
+    }
+    if (movers[ply] < 0) {
+      labelChance(game, ply, depth);
+      return;
+    }
+
+    int mover = movers[ply];
+    int remaining = game.getPossibleActions().size();
+    if (firstAction != null && game.isValidAction(firstAction)) {
+      remaining--;
+      isLastBranch[ply] = remaining == 0;
+      labelChild(game, ply, depth, firstAction);
+      if (aborted || isCutOff(ply, mover)) {
+        return;
+      }
+    }
+    for (A action : game.getPossibleActions()) {
+      if (action.equals(firstAction)) {
+        continue;
+      }
+      remaining--;
+      isLastBranch[ply] = remaining == 0;
+      labelChild(game, ply, depth, action);
+      if (aborted || isCutOff(ply, mover)) {
+        return;
+      }
+    }
+  }
+
+  private void labelChild(Game<A, ?> game, int ply, int depth, A action) {
+    int child = ply + 1;
+    label(game.doAction(action), child, depth - 1, null);
+    if (aborted) {
+      return;
+    }
+    int mover = movers[ply];
+    if (!hasBest[ply] || utilities[child][mover] > utilities[ply][mover]
+        || utilities[child][mover] == utilities[ply][mover]
+        && heuristics[child][mover] > heuristics[ply][mover]) {
+      System.arraycopy(utilities[child], 0, utilities[ply], 0, numberOfPlayers);
+      System.arraycopy(heuristics[child], 0, heuristics[ply], 0, numberOfPlayers);
+      hasBest[ply] = true;
+      if (ply == 0) {
+        bestAction = action;
+      }
+    }
+  }
+
+  /**
+   * Checks whether the rest of the children of a node can be skipped, because whatever they are
+   * worth, the player to move at the parent or grandparent will not choose this node.
+   */
+  private boolean isCutOff(int ply, int mover) {
+    if (!canPrune()) {
+      return false;
+    }
+    // every other player gets at most what the mover leaves over. Even if nothing is left over,
+    // a sibling could tie the mover's utility and win by the heuristic, so this alone cuts nothing
+    double bound = maxSum - utilities[ply][mover] - (numberOfPlayers - 2) * minValue;
+    if (ply == 0) {
+      return false;
+    }
+    int parent = ply - 1;
+    int parentMover = movers[parent];
+    if (parentMover < 0 || parentMover == mover) {
+      return false;
+    }
+    if (hasBest[parent] && bound < utilities[parent][parentMover]) {
+      shallowCutOffs++;
+      return true;
+    }
+    if (parent == 0 || !isLastBranch[parent]) {
+      return false;
+    }
+    int grandparent = parent - 1;
+    int grandparentMover = movers[grandparent];
+    if (grandparentMover < 0 || grandparentMover == mover || !hasBest[grandparent]) {
+      return false;
+    }
+    double alpha = utilities[grandparent][grandparentMover];
+    if (bound < alpha
+        && (!hasBest[parent] || utilities[parent][grandparentMover] < alpha)) {
+      lastBranchCutOffs++;
+      return true;
+    }
+    return false;
+  }
+
+  private void labelChance(Game<A, ?> game, int ply, int depth) {
+    int samples = game.getPossibleActions().size() * CHANCE_SAMPLES;
+    ChanceEstimator<A> estimator = chanceSampler != null ? chanceSampler.sample(game, samples)
+        : ChanceSampler.sampleSequentially(game, samples);
+    int child = ply + 1;
+    if (!expectimax || estimator.getTotal() == 0) {
+      A outcome = estimator.getMostFrequent();
+      if (outcome == null) {
+        outcome = game.getPossibleActions().iterator().next();
+      }
+      label(game.doAction(outcome), child, depth - 1, null);
+      if (!aborted) {
+        System.arraycopy(utilities[child], 0, utilities[ply], 0, numberOfPlayers);
+        System.arraycopy(heuristics[child], 0, heuristics[ply], 0, numberOfPlayers);
+      }
+      return;
+    }
+
+    double[] sum = sums[ply];
+    Arrays.fill(sum, 0);
+    double total = estimator.getTotal();
+    for (A outcome : game.getPossibleActions()) {
+      int count = estimator.getCount(outcome);
+      if (count == 0) {
+        continue;
+      }
+      label(game.doAction(outcome), child, depth - 1, null);
+      if (aborted) {
+        return;
+      }
+      for (int player = 0; player < numberOfPlayers; player++) {
+        sum[player] += utilities[child][player] * count;
+        sum[numberOfPlayers + player] += heuristics[child][player] * count;
+      }
+    }
+    for (int player = 0; player < numberOfPlayers; player++) {
+      utilities[ply][player] = sum[player] / total;
+      heuristics[ply][player] = sum[numberOfPlayers + player] / total;
+    }
+  }
+
+  private void evaluate(Game<A, ?> game, int ply) {
+    for (int player = 0; player < numberOfPlayers; player++) {
+      utilities[ply][player] = game.getUtilityValue(player);
+      heuristics[ply][player] = game.getHeuristicValue(player);
+    }
+  }
+
+  /**
+   * @return the utilities of the root for every player after a completed search
+   */
+  double[] getUtilities() {
+    return utilities[0].clone();
+  }
+
+  /**
+   * @return the heuristic values of the root for every player after a completed search
+   */
+  double[] getHeuristics() {
+    return heuristics[0].clone();
+  }
+
+  /**
+   * @return whether the last search reached the end of the game on every line it followed
+   */
+  boolean isExhausted() {
+    return exhausted && !aborted;
+  }
+
+  long getNodesVisited() {
+    return nodesVisited;
+  }
+
+  long getShallowCutOffs() {
+    return shallowCutOffs;
+  }
+
+  long getLastBranchCutOffs() {
+    return lastBranchCutOffs;
+  }
+
+}
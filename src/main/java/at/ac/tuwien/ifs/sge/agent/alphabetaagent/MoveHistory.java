@@ -0,0 +1,147 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import java.util.Arrays;
+
+/**
+ * Remembers which actions caused cut-offs, to try them first in sibling subtrees. Every ply has
+ * two killer slots holding the latest actions which caused a cut-off at that ply. The history
+ * table adds up the squared remaining depth of every cut-off per player and action. It is indexed
+ * by a hash of both without storing keys, colliding actions share their score.
+ *
+ * @param <A> the type of actions
+ */
+class MoveHistory<A> {
+
+  static final int KILLERS = 2;
+
+  /**
+   * The score of the best action of an earlier search of the same state, above every killer.
+   */
+  static final long BEST_ACTION_SCORE = Long.MAX_VALUE;
+
+  private static final long FIRST_KILLER_SCORE = BEST_ACTION_SCORE - 1;
+  private static final long SECOND_KILLER_SCORE = BEST_ACTION_SCORE - 2;
+
+  private final int mask;
+  private final long[] history;
+  private Object[] killers;
+  private long[] scores;
+
+  MoveHistory() {
+    this(1 << 12);
+  }
+
+  MoveHistory(int capacity) {
+    int slots = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+    mask = slots - 1;
+    history = new long[slots];
+    killers = new Object[64 * KILLERS];
+    scores = new long[64];
+  }
+
+  void clear() {
+    Arrays.fill(history, 0L);
+    Arrays.fill(killers, null);
+  }
+
+  /**
+   * Halves all history scores, so that cut-offs of earlier searches weigh less than recent ones.
+   */
+  void age() {
+    for (int i = 0; i < history.length; i++) {
+      history[i] >>>= 1;
+    }
+  }
+
+  private int indexOf(int player, A action) {
+    int h = action.hashCode() * 31 + player;
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    return h & mask;
+  }
+
+  /**
+   * @param ply the absolute depth of the node where the cut-off happened
+   * @param player the player of that node
+   * @param action the action which caused the cut-off
+   * @param remainingDepth the depth the node was searched to
+   */
+  void recordCutOff(int ply, int player, A action, int remainingDepth) {
+    if (action == null) {
+      return;
+    }
+    int slot = ply * KILLERS;
+    if (slot + KILLERS > killers.length) {
+      killers = Arrays.copyOf(killers, Math.max(slot + KILLERS, killers.length << 1));
+    }
+    if (!action.equals(killers[slot])) {
+      killers[slot + 1] = killers[slot];
+      killers[slot] = action;
+    }
+    remainingDepth = Math.max(remainingDepth, 1);
+    int index = indexOf(player, action);
+    history[index] = Math.min(history[index] + (long) remainingDepth * remainingDepth,
+        SECOND_KILLER_SCORE - 1);
+  }
+
+  /**
+   * @return the killer action of the given slot at a ply or null if there is none
+   */
+  @SuppressWarnings("unchecked")
+  A getKiller(int ply, int killer) {
+    int slot = ply * KILLERS + killer;
+    return slot < killers.length ? (A) killers[slot] : null;
+  }
+
+  long getHistory(int player, A action) {
+    return action == null ? 0 : history[indexOf(player, action)];
+  }
+
+  /**
+   * @return the ordering score of an action, killers first, then by history
+   */
+  long score(int ply, int player, A action) {
+    if (action == null) {
+      return 0;
+    }
+    int slot = ply * KILLERS;
+    if (slot < killers.length) {
+      if (action.equals(killers[slot])) {
+        return FIRST_KILLER_SCORE;
+      }
+      if (action.equals(killers[slot + 1])) {
+        return SECOND_KILLER_SCORE;
+      }
+    }
+    return history[indexOf(player, action)];
+  }
+
+  /**
+   * Sorts actions in place by their scores with a stable insertion sort, the best action of an
+   * earlier search first.
+   *
+   * @param bestAction the best action of an earlier search of the state, or null
+   * @return the actions
+   */
+  @SuppressWarnings("unchecked")
+  Object[] order(int ply, int player, Object[] actions, A bestAction) {
+    if (scores.length < actions.length) {
+      scores = new long[Integer.highestOneBit(actions.length) << 1];
+    }
+    for (int i = 0; i < actions.length; i++) {
+      A action = (A) actions[i];
+      long score = action.equals(bestAction) ? BEST_ACTION_SCORE : score(ply, player, action);
+      int j = i - 1;
+      while (j >= 0 && scores[j] < score) {
+        actions[j + 1] = actions[j];
+        scores[j + 1] = scores[j];
+        j--;
+      }
+      actions[j + 1] = action;
+      scores[j + 1] = score;
+    }
+    return actions;
+  }
+
+}
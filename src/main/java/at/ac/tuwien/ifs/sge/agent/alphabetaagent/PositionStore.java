@@ -0,0 +1,250 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A transposition table in a memory-mapped file, so that deep results outlive the agent and are
+ * shared by every agent, thread and process mapping the same file. Entries are keyed by 64 bit
+ * state hashes, which therefore have to be stable across processes, and store the values with
+ * their bound types, the searched depth and the index of the best action in the order of {@link
+ * at.ac.tuwien.ifs.sge.game.Game#getPossibleActions()}. Every key has one slot. An entry of
+ * another state is always replaced, so that the store keeps up with the states being searched,
+ * while an entry of the same state is only replaced by one searched at least as deep.
+ *
+ * <p>Like {@link TranspositionTable} every slot has a stamp which is odd while the slot is
+ * written. The stamp is changed by compare and set on the mapped memory, which is atomic across
+ * processes, so concurrent writers drop their entry instead of waiting and readers report a miss
+ * instead of a torn entry.
+ *
+ * <p>The agents of a process share one mapping of every file through {@link #open(Path, int)}.
+ */
+class PositionStore {
+
+  private static final long MAGIC = 0x5347454142505331L;
+  private static final int HEADER_SIZE = 64;
+  private static final int ENTRY_SIZE = 40;
+
+  private static final int STAMP = 0;
+  private static final int DEPTH = 4;
+  private static final int KEY = 8;
+  private static final int UTILITY = 16;
+  private static final int HEURISTIC = 24;
+  private static final int BEST_INDEX = 32;
+  private static final int UTILITY_BOUND = 36;
+  private static final int HEURISTIC_BOUND = 37;
+
+  /**
+   * The most entries a store can have, as the whole file is mapped into one buffer.
+   */
+  static final int MAX_CAPACITY = (Integer.MAX_VALUE - HEADER_SIZE) / ENTRY_SIZE;
+
+  private static final VarHandle INTS = MethodHandles
+      .byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+  private static final Map<Path, PositionStore> OPEN_STORES = new HashMap<>();
+
+  private final Path path;
+  private final MappedByteBuffer buffer;
+  private final int capacity;
+  private int references;
+
+  /**
+   * Maps a store, creating the file if it does not exist yet. An existing store keeps the
+   * capacity it was created with.
+   *
+   * @param capacity the number of entries of a new store
+   * @throws IOException if the file cannot be mapped or is not a store
+   * @throws IllegalArgumentException if the capacity is larger than {@link #MAX_CAPACITY}
+   */
+  PositionStore(Path path, int capacity) throws IOException {
+    if (capacity > MAX_CAPACITY) {
+      throw new IllegalArgumentException(
+          "A position store has at most " + MAX_CAPACITY + " entries, not " + capacity);
+    }
+    this.path = path;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileLock ignored = channel.lock()) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.nativeOrder());
+      if (channel.size() == 0) {
+        capacity = Math.max(capacity, 1);
+        header.putLong(MAGIC).putInt(ENTRY_SIZE).putInt(capacity).rewind();
+        channel.write(header, 0);
+        channel.write(ByteBuffer.allocate(1), HEADER_SIZE + (long) capacity * ENTRY_SIZE - 1);
+      } else {
+        channel.read(header, 0);
+        header.rewind();
+        if (header.getLong() != MAGIC || header.getInt() != ENTRY_SIZE) {
+          throw new IOException(path + " is not a position store");
+        }
+        capacity = header.getInt();
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+          throw new IOException(path + " is not a position store");
+        }
+        if (channel.size() < HEADER_SIZE + (long) capacity * ENTRY_SIZE) {
+          throw new IOException(path + " is truncated");
+        }
+      }
+      this.capacity = capacity;
+      buffer = channel.map(MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * ENTRY_SIZE);
+      buffer.order(ByteOrder.nativeOrder());
+    }
+  }
+
+  /**
+   * Maps the store of a file, or shares the mapping of an agent of the same process that has it
+   * open already. Every call has to be matched by a call to {@link #close()}.
+   *
+   * @see #PositionStore(Path, int)
+   */
+  static PositionStore open(Path path, int capacity) throws IOException {
+    Path key = path.toAbsolutePath().normalize();
+    synchronized (OPEN_STORES) {
+      PositionStore store = OPEN_STORES.get(key);
+      if (store == null) {
+        store = new PositionStore(key, capacity);
+        OPEN_STORES.put(key, store);
+      }
+      store.references++;
+      return store;
+    }
+  }
+
+  /**
+   * Gives up a mapping shared by {@link #open(Path, int)}. Once the last agent gave it up, the
+   * next one maps the file again. Java cannot unmap a buffer explicitly, the file is unmapped once
+   * the store is garbage collected.
+   */
+  void close() {
+    synchronized (OPEN_STORES) {
+      if (references > 0 && --references == 0) {
+        OPEN_STORES.remove(path, this);
+      }
+    }
+  }
+
+  private int offsetOf(long key) {
+    return HEADER_SIZE + (int) Long.remainderUnsigned(key, capacity) * ENTRY_SIZE;
+  }
+
+  /**
+   * Copies the entry of a state.
+   *
+   * @param key the hash of the state
+   * @param entry the entry to copy into
+   * @return true if there is an entry and it was not written while it was copied
+   */
+  boolean load(long key, Entry entry) {
+    int offset = offsetOf(key);
+    int stamp = (int) INTS.getAcquire(buffer, offset + STAMP);
+    if ((stamp & 1) != 0 || buffer.get(offset + UTILITY_BOUND) == TranspositionTable.EMPTY
+        || buffer.getLong(offset + KEY) != key) {
+      return false;
+    }
+    entry.depth = buffer.getInt(offset + DEPTH);
+    entry.utility = buffer.getDouble(offset + UTILITY);
+    entry.utilityBound = buffer.get(offset + UTILITY_BOUND);
+    entry.heuristic = buffer.getDouble(offset + HEURISTIC);
+    entry.heuristicBound = buffer.get(offset + HEURISTIC_BOUND);
+    entry.bestIndex = buffer.getInt(offset + BEST_INDEX);
+    VarHandle.acquireFence();
+    return (int) INTS.getVolatile(buffer, offset + STAMP) == stamp
+        && buffer.getLong(offset + KEY) == key;
+  }
+
+  /**
+   * @param bestIndex the index of the best action or -1 if there is none
+   */
+  void store(long key, int depth,
+      double utility, byte utilityBound,
+      double heuristic, byte heuristicBound,
+      int bestIndex) {
+    int offset = offsetOf(key);
+    int stamp = (int) INTS.getVolatile(buffer, offset + STAMP);
+    if ((stamp & 1) != 0 || isDeeper(offset, key, depth)
+        || !INTS.compareAndSet(buffer, offset + STAMP, stamp, stamp + 1)) {
+      return;
+    }
+    try {
+      if (isDeeper(offset, key, depth)) {
+        return;
+      }
+      buffer.putInt(offset + DEPTH, depth);
+      buffer.putLong(offset + KEY, key);
+      buffer.putDouble(offset + UTILITY, utility);
+      buffer.put(offset + UTILITY_BOUND, utilityBound);
+      buffer.putDouble(offset + HEURISTIC, heuristic);
+      buffer.put(offset + HEURISTIC_BOUND, heuristicBound);
+      buffer.putInt(offset + BEST_INDEX, bestIndex);
+    } finally {
+      INTS.setRelease(buffer, offset + STAMP, stamp + 2);
+    }
+  }
+
+  /**
+   * @return true if the slot holds an entry of the same state searched deeper
+   */
+  private boolean isDeeper(int offset, long key, int depth) {
+    return buffer.get(offset + UTILITY_BOUND) != TranspositionTable.EMPTY
+        && buffer.getLong(offset + KEY) == key
+        && buffer.getInt(offset + DEPTH) > depth;
+  }
+
+  int capacity() {
+    return capacity;
+  }
+
+  /**
+   * A copy of an entry, reusable across lookups.
+   */
+  static final class Entry {
+
+    private int depth;
+    private double utility;
+    private byte utilityBound;
+    private double heuristic;
+    private byte heuristicBound;
+    private int bestIndex;
+
+    int getDepth() {
+      return depth;
+    }
+
+    double getUtility() {
+      return utility;
+    }
+
+    byte getUtilityBound() {
+      return utilityBound;
+    }
+
+    double getHeuristic() {
+      return heuristic;
+    }
+
+    byte getHeuristicBound() {
+      return heuristicBound;
+    }
+
+    /**
+     * @return the index of the best action or -1 if there is none
+     */
+    int getBestIndex() {
+      return bestIndex;
+    }
+
+  }
+
+}
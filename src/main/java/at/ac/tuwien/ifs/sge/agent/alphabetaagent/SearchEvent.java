@@ -0,0 +1,112 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Percentage;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of one call to {@link AlphaBetaAgent#computeNextAction}, carrying its
+ * {@link SearchStatistics}.
+ */
+@Name("at.ac.tuwien.ifs.sge.agent.alphabetaagent.Search")
+@Label("Search")
+@Category({"SGE", "AlphaBetaAgent"})
+@Description("Search for the next action of an alpha-beta agent")
+@StackTrace(false)
+class SearchEvent extends Event {
+
+  @Label("Agent")
+  String agent;
+
+  @Label("Depth")
+  int depth;
+
+  @Label("Iterations")
+  int iterations;
+
+  @Label("Nodes Visited")
+  long nodesVisited;
+
+  @Label("Nodes Expanded")
+  long nodesExpanded;
+
+  @Label("Nodes Created")
+  long nodesCreated;
+
+  @Label("Games Restored")
+  long gamesRestored;
+
+  @Label("Nodes Evaluated")
+  long nodesEvaluated;
+
+  @Label("Quiescence Nodes")
+  long quiescenceNodes;
+
+  @Label("Chance Samples")
+  long chanceSamples;
+
+  @Label("Alpha Cut-offs")
+  long alphaCutOffs;
+
+  @Label("Beta Cut-offs")
+  long betaCutOffs;
+
+  @Label("First Move Cut-off Rate")
+  @Percentage
+  double firstMoveCutOffRate;
+
+  @Label("Nodes Reused")
+  long nodesReused;
+
+  @Label("Nodes Solved")
+  long nodesSolved;
+
+  @Label("Scout Failures")
+  long scoutFailures;
+
+  @Label("Aspiration Failures")
+  long aspirationFailures;
+
+  @Label("Transposition Hit Rate")
+  @Percentage
+  double transpositionHitRate;
+
+  @Label("Evaluation Cache Hit Rate")
+  @Percentage
+  double evaluationHitRate;
+
+  @Label("Effective Branching Factor")
+  double effectiveBranchingFactor;
+
+  @Label("Tree Size")
+  int treeSize;
+
+  void set(String agent, SearchStatistics statistics) {
+    this.agent = agent;
+    depth = statistics.getDepth();
+    iterations = statistics.getIterations();
+    nodesVisited = statistics.getNodesVisited();
+    nodesExpanded = statistics.getNodesExpanded();
+    nodesCreated = statistics.getNodesCreated();
+    gamesRestored = statistics.getGamesRestored();
+    nodesEvaluated = statistics.getNodesEvaluated();
+    quiescenceNodes = statistics.getQuiescenceNodes();
+    chanceSamples = statistics.getChanceSamples();
+    alphaCutOffs = statistics.getAlphaCutOffs();
+    betaCutOffs = statistics.getBetaCutOffs();
+    firstMoveCutOffRate = statistics.getFirstMoveCutOffRate();
+    nodesReused = statistics.getNodesReused();
+    nodesSolved = statistics.getNodesSolved();
+    scoutFailures = statistics.getScoutFailures();
+    aspirationFailures = statistics.getAspirationFailures();
+    transpositionHitRate = statistics.getTranspositionHitRate();
+    evaluationHitRate = statistics.getEvaluationHitRate();
+    effectiveBranchingFactor = statistics.getEffectiveBranchingFactor();
+    treeSize = statistics.getTreeSize();
+  }
+
+}
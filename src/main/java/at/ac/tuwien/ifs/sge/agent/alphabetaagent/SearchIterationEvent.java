@@ -0,0 +1,32 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of one labeling of the tree during iterative deepening.
+ */
+@Name("at.ac.tuwien.ifs.sge.agent.alphabetaagent.SearchIteration")
+@Label("Search Iteration")
+@Category({"SGE", "AlphaBetaAgent"})
+@Description("Labeling of the tree of an alpha-beta agent up to a depth")
+@StackTrace(false)
+class SearchIterationEvent extends Event {
+
+  @Label("Agent")
+  String agent;
+
+  @Label("Iteration")
+  int iteration;
+
+  @Label("Depth")
+  int depth;
+
+  @Label("Nodes Visited")
+  long nodesVisited;
+
+}
@@ -0,0 +1,365 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import java.util.Arrays;
+
+/**
+ * Counters of the last search of an agent, see {@link AlphaBetaAgent#getStatistics()}. The
+ * counters are primitives which are reset, not reallocated, before every search, so counting does
+ * not allocate. Helper threads keep statistics of their own, these only cover the agent's thread.
+ */
+public class SearchStatistics {
+
+  private long nodesVisited;
+  private long nodesExpanded;
+  private long nodesCreated;
+  private long gamesRestored;
+  private long nodesEvaluated;
+  private long quiescenceNodes;
+  private long chanceSamples;
+  private long alphaCutOffs;
+  private long betaCutOffs;
+  private long firstMoveCutOffs;
+  private long[] cutOffsPerPly = new long[64];
+  private int maxCutOffPly = -1;
+  private long nodesReused;
+  private long nodesSolved;
+  private long scoutFailures;
+  private long aspirationFailures;
+  private long transpositionProbes;
+  private long transpositionHits;
+  private long evaluationProbes;
+  private long evaluationHits;
+
+  private int iterations;
+  private int[] iterationDepths = new int[64];
+  private long[] iterationNodes = new long[64];
+  private long[] iterationNanos = new long[64];
+
+  private long nanos;
+  private int treeSize;
+  private double averageBranching;
+
+  void reset() {
+    nodesVisited = 0;
+    nodesExpanded = 0;
+    nodesCreated = 0;
+    gamesRestored = 0;
+    nodesEvaluated = 0;
+    quiescenceNodes = 0;
+    chanceSamples = 0;
+    alphaCutOffs = 0;
+    betaCutOffs = 0;
+    firstMoveCutOffs = 0;
+    Arrays.fill(cutOffsPerPly, 0L);
+    maxCutOffPly = -1;
+    nodesReused = 0;
+    nodesSolved = 0;
+    scoutFailures = 0;
+    aspirationFailures = 0;
+    transpositionProbes = 0;
+    transpositionHits = 0;
+    evaluationProbes = 0;
+    evaluationHits = 0;
+    iterations = 0;
+    nanos = 0;
+    treeSize = 0;
+    averageBranching = 0;
+  }
+
+  void countExpansion() {
+    nodesExpanded++;
+  }
+
+  void countCreation() {
+    nodesCreated++;
+  }
+
+  void countEvaluation() {
+    nodesEvaluated++;
+  }
+
+  void countQuiescenceNode() {
+    quiescenceNodes++;
+  }
+
+  void countChanceSamples(int samples) {
+    chanceSamples += samples;
+  }
+
+  /**
+   * @param ply the distance of the node from the root
+   * @param isBetaCutOff whether the node was one of the agent
+   * @param isFirstMove whether only the first child had been labeled
+   */
+  void countCutOff(int ply, boolean isBetaCutOff, boolean isFirstMove) {
+    if (isBetaCutOff) {
+      betaCutOffs++;
+    } else {
+      alphaCutOffs++;
+    }
+    if (isFirstMove) {
+      firstMoveCutOffs++;
+    }
+    if (ply >= cutOffsPerPly.length) {
+      cutOffsPerPly = Arrays.copyOf(cutOffsPerPly, Math.max(ply + 1, cutOffsPerPly.length << 1));
+    }
+    cutOffsPerPly[ply]++;
+    maxCutOffPly = Math.max(maxCutOffPly, ply);
+  }
+
+  void countReuse() {
+    nodesReused++;
+  }
+
+  void countSolved() {
+    nodesSolved++;
+  }
+
+  void countScoutFailure() {
+    scoutFailures++;
+  }
+
+  void countAspirationFailure() {
+    aspirationFailures++;
+  }
+
+  void countTranspositionProbe(boolean isHit) {
+    transpositionProbes++;
+    if (isHit) {
+      transpositionHits++;
+    }
+  }
+
+  void countEvaluationProbe(boolean isHit) {
+    evaluationProbes++;
+    if (isHit) {
+      evaluationHits++;
+    }
+  }
+
+  void addIteration(int depth, long nodes, long nanos) {
+    if (iterations == iterationDepths.length) {
+      iterationDepths = Arrays.copyOf(iterationDepths, iterations << 1);
+      iterationNodes = Arrays.copyOf(iterationNodes, iterations << 1);
+      iterationNanos = Arrays.copyOf(iterationNanos, iterations << 1);
+    }
+    iterationDepths[iterations] = depth;
+    iterationNodes[iterations] = nodes;
+    iterationNanos[iterations] = nanos;
+    iterations++;
+    nodesVisited += nodes;
+  }
+
+  void finish(long nanos, int treeSize, double averageBranching, long gamesRestored) {
+    this.nanos = nanos;
+    this.gamesRestored = gamesRestored;
+    this.treeSize = treeSize;
+    this.averageBranching = averageBranching;
+  }
+
+  public long getNodesVisited() {
+    return nodesVisited;
+  }
+
+  public long getNodesExpanded() {
+    return nodesExpanded;
+  }
+
+  /**
+   * @return the number of children created, each by applying an action to the game of its parent
+   */
+  public long getNodesCreated() {
+    return nodesCreated;
+  }
+
+  /**
+   * @return the number of evicted games restored by replaying actions
+   */
+  public long getGamesRestored() {
+    return gamesRestored;
+  }
+
+  /**
+   * @return the number of nodes labeled with the values of their game
+   */
+  public long getNodesEvaluated() {
+    return nodesEvaluated;
+  }
+
+  public long getQuiescenceNodes() {
+    return quiescenceNodes;
+  }
+
+  /**
+   * @return the number of outcomes sampled at chance nodes
+   */
+  public long getChanceSamples() {
+    return chanceSamples;
+  }
+
+  public long getAlphaCutOffs() {
+    return alphaCutOffs;
+  }
+
+  public long getBetaCutOffs() {
+    return betaCutOffs;
+  }
+
+  public long getCutOffs() {
+    return alphaCutOffs + betaCutOffs;
+  }
+
+  /**
+   * @param ply the distance from the root
+   * @return the number of cut-offs at nodes of the given ply
+   */
+  public long getCutOffs(int ply) {
+    return ply < cutOffsPerPly.length ? cutOffsPerPly[ply] : 0;
+  }
+
+  /**
+   * @return the deepest ply with a cut-off or -1 if there was none
+   */
+  public int getMaxCutOffPly() {
+    return maxCutOffPly;
+  }
+
+  /**
+   * @return the share of cut-offs which happened right after the first child, a measure of the
+   * move ordering
+   */
+  public double getFirstMoveCutOffRate() {
+    long cutOffs = getCutOffs();
+    return cutOffs == 0 ? 0 : (double) firstMoveCutOffs / cutOffs;
+  }
+
+  /**
+   * @return the number of nodes labeled by the values of an earlier search deep enough for the
+   * current one, without searching their subtrees again
+   */
+  public long getNodesReused() {
+    return nodesReused;
+  }
+
+  /**
+   * @return the number of nodes labeled by values proven in an earlier search, without expanding
+   * them
+   */
+  public long getNodesSolved() {
+    return nodesSolved;
+  }
+
+  /**
+   * @return the number of children searched again with the windows of their parent, because their
+   * search with a null window found them better than their siblings so far
+   */
+  public long getScoutFailures() {
+    return scoutFailures;
+  }
+
+  /**
+   * @return the number of iterations searched again with full windows, because the value of the
+   * root fell outside of the aspiration windows
+   */
+  public long getAspirationFailures() {
+    return aspirationFailures;
+  }
+
+  public long getTranspositionProbes() {
+    return transpositionProbes;
+  }
+
+  public long getTranspositionHits() {
+    return transpositionHits;
+  }
+
+  public double getTranspositionHitRate() {
+    return transpositionProbes == 0 ? 0 : (double) transpositionHits / transpositionProbes;
+  }
+
+  /**
+   * @return the number of values of games asked from the evaluation cache
+   */
+  public long getEvaluationProbes() {
+    return evaluationProbes;
+  }
+
+  public long getEvaluationHits() {
+    return evaluationHits;
+  }
+
+  public long getEvaluationMisses() {
+    return evaluationProbes - evaluationHits;
+  }
+
+  public double getEvaluationHitRate() {
+    return evaluationProbes == 0 ? 0 : (double) evaluationHits / evaluationProbes;
+  }
+
+  public int getIterations() {
+    return iterations;
+  }
+
+  public int getIterationDepth(int iteration) {
+    return iterationDepths[iteration];
+  }
+
+  public long getIterationNodes(int iteration) {
+    return iterationNodes[iteration];
+  }
+
+  public long getIterationNanos(int iteration) {
+    return iterationNanos[iteration];
+  }
+
+  /**
+   * @return the depth of the last iteration or 0 if there was none
+   */
+  public int getDepth() {
+    return iterations == 0 ? 0 : iterationDepths[iterations - 1];
+  }
+
+  /**
+   * @return the ratio of the nodes visited by the last two iterations, or 0 if there were less
+   * than two
+   */
+  public double getEffectiveBranchingFactor() {
+    if (iterations < 2 || iterationNodes[iterations - 2] == 0) {
+      return 0;
+    }
+    return (double) iterationNodes[iterations - 1] / iterationNodes[iterations - 2];
+  }
+
+  public long getNanos() {
+    return nanos;
+  }
+
+  public double getNodesPerSecond() {
+    return nanos == 0 ? 0 : nodesVisited * 1e9D / nanos;
+  }
+
+  public int getTreeSize() {
+    return treeSize;
+  }
+
+  public double getAverageBranching() {
+    return averageBranching;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%d nodes in %d iterations to depth %d (%.0f nodes/s), "
+            + "%d expanded, %d created, %d evaluated, %d in quiescence, %d chance samples, "
+            + "%d alpha and %d beta cut-offs (%.0f%% at the first move), %d reused, %d solved, "
+            + "%d scouts and %d aspiration windows failed, "
+            + "%d of %d transpositions found, %d of %d evaluations cached, "
+            + "effective branching factor %.2f",
+        nodesVisited, iterations, getDepth(), getNodesPerSecond(),
+        nodesExpanded, nodesCreated, nodesEvaluated, quiescenceNodes, chanceSamples,
+        alphaCutOffs, betaCutOffs, getFirstMoveCutOffRate() * 100, nodesReused, nodesSolved,
+        scoutFailures, aspirationFailures, transpositionHits, transpositionProbes,
+        evaluationHits, evaluationProbes,
+        getEffectiveBranchingFactor());
+  }
+
+}
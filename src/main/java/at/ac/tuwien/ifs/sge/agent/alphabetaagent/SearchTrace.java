@@ -0,0 +1,159 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Records what a search does in a ring buffer of fixed-size records, each with the time since the
+ * search started, the kind of event, the ply below the root and the remaining depth. The buffer
+ * is allocated once and keeps the latest records, so recording costs a clock read and four array
+ * stores and never allocates. A trace is written to and read from a compact binary file, see
+ * {@link SearchTraceReader} for turning it into histograms.
+ */
+class SearchTrace {
+
+  static final byte ITERATION = 0;
+  static final byte EXPAND = 1;
+  static final byte EVALUATE = 2;
+  static final byte CUT_OFF = 3;
+  static final int TYPES = 4;
+
+  private static final int MAGIC = 0x53474554;
+  private static final short VERSION = 1;
+
+  private final long[] nanos;
+  private final byte[] types;
+  private final short[] plies;
+  private final short[] depths;
+  private final int mask;
+
+  private long start;
+  private long recorded;
+  private long dropped;
+
+  /**
+   * @param capacity the number of records kept, rounded up to a power of two
+   */
+  SearchTrace(int capacity) {
+    capacity = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+    nanos = new long[capacity];
+    types = new byte[capacity];
+    plies = new short[capacity];
+    depths = new short[capacity];
+    mask = capacity - 1;
+  }
+
+  /**
+   * Drops all records.
+   *
+   * @param start the time of the start of the search as of {@link System#nanoTime()}
+   */
+  void clear(long start) {
+    this.start = start;
+    recorded = 0;
+    dropped = 0;
+  }
+
+  void record(byte type, int ply, int depth) {
+    int i = (int) recorded++ & mask;
+    nanos[i] = System.nanoTime() - start;
+    types[i] = type;
+    plies[i] = (short) ply;
+    depths[i] = (short) depth;
+  }
+
+  /**
+   * @return the number of records kept
+   */
+  int size() {
+    return (int) Math.min(recorded, nanos.length);
+  }
+
+  /**
+   * @return the number of records overwritten by later ones
+   */
+  long getDropped() {
+    return dropped + recorded - size();
+  }
+
+  private int indexOf(int record) {
+    return (int) (recorded - size() + record) & mask;
+  }
+
+  /**
+   * @param record the index of a record, 0 being the oldest one kept
+   * @return the nanoseconds since the start of the search
+   */
+  long getNanos(int record) {
+    return nanos[indexOf(record)];
+  }
+
+  byte getType(int record) {
+    return types[indexOf(record)];
+  }
+
+  int getPly(int record) {
+    return plies[indexOf(record)];
+  }
+
+  int getDepth(int record) {
+    return depths[indexOf(record)];
+  }
+
+  /**
+   * Writes the records kept, oldest first, after a header with the number of records dropped.
+   */
+  void write(Path path) throws IOException {
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+      int size = size();
+      out.writeInt(MAGIC);
+      out.writeShort(VERSION);
+      out.writeLong(getDropped());
+      out.writeInt(size);
+      for (int record = 0; record < size; record++) {
+        int i = indexOf(record);
+        out.writeLong(nanos[i]);
+        out.writeByte(types[i]);
+        out.writeShort(plies[i]);
+        out.writeShort(depths[i]);
+      }
+    }
+  }
+
+  /**
+   * @throws IOException if the file cannot be read or is not a trace
+   */
+  static SearchTrace read(Path path) throws IOException {
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+      if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+        throw new IOException(path + " is not a search trace");
+      }
+      long dropped = in.readLong();
+      int size = in.readInt();
+      if (dropped < 0 || size < 0) {
+        throw new IOException(path + " is corrupt");
+      }
+      SearchTrace trace = new SearchTrace(size);
+      for (int record = 0; record < size; record++) {
+        trace.nanos[record] = in.readLong();
+        trace.types[record] = in.readByte();
+        if (trace.types[record] < 0 || trace.types[record] >= TYPES) {
+          throw new IOException(path + " is corrupt");
+        }
+        trace.plies[record] = in.readShort();
+        trace.depths[record] = in.readShort();
+      }
+      trace.recorded = size;
+      trace.dropped = dropped;
+      return trace;
+    }
+  }
+
+}
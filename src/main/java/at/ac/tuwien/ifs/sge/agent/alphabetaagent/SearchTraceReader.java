@@ -0,0 +1,101 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Prints per-ply histograms of search traces written by the agent with {@code
+ * alphabetaagent.traceDirectory} set: the nodes expanded, the nodes evaluated and the cut-offs at
+ * every ply below the root, and the time spent there. The time between two records is counted
+ * for the ply of the later one.
+ *
+ * <pre>
+ * java -cp sge-alphabetaagent.jar at.ac.tuwien.ifs.sge.agent.alphabetaagent.SearchTraceReader \
+ *     traces/AlphaBetaAgent-17.trace
+ * </pre>
+ */
+public class SearchTraceReader {
+
+  /**
+   * The column of the nanoseconds in a histogram, after the counts of every record type.
+   */
+  static final int NANOS = SearchTrace.TYPES;
+
+  private static final int BAR_WIDTH = 40;
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      System.err.println("Usage: SearchTraceReader trace...");
+      System.exit(1);
+    }
+    for (String arg : args) {
+      Path path = Paths.get(arg);
+      System.out.print(report(path, SearchTrace.read(path)));
+    }
+  }
+
+  /**
+   * @return the counts of every record type and the nanoseconds spent, indexed by ply and then by
+   * type or {@link #NANOS}
+   */
+  static long[][] histogram(SearchTrace trace) {
+    long[][] histogram = new long[0][];
+    long last = 0;
+    for (int record = 0; record < trace.size(); record++) {
+      int ply = Math.max(trace.getPly(record), 0);
+      if (ply >= histogram.length) {
+        int from = histogram.length;
+        histogram = Arrays.copyOf(histogram, ply + 1);
+        for (int i = from; i <= ply; i++) {
+          histogram[i] = new long[NANOS + 1];
+        }
+      }
+      histogram[ply][trace.getType(record)]++;
+      long nanos = trace.getNanos(record);
+      if (record > 0) {
+        histogram[ply][NANOS] += nanos - last;
+      }
+      last = nanos;
+    }
+    return histogram;
+  }
+
+  static String report(Path path, SearchTrace trace) {
+    StringBuilder report = new StringBuilder();
+    int size = trace.size();
+    long nanos = size == 0 ? 0 : trace.getNanos(size - 1);
+    report.append(String.format("%s: %d records, %d dropped, %.1f ms%n", path, size,
+        trace.getDropped(), nanos / 1e6));
+
+    StringBuilder iterations = new StringBuilder();
+    for (int record = 0; record < size; record++) {
+      if (trace.getType(record) == SearchTrace.ITERATION) {
+        iterations.append(String.format(" %d@%.1f", trace.getDepth(record),
+            trace.getNanos(record) / 1e6));
+      }
+    }
+    if (iterations.length() > 0) {
+      report.append("iterations (depth@ms):").append(iterations).append(System.lineSeparator());
+    }
+
+    long[][] histogram = histogram(trace);
+    long maxNanos = 1;
+    for (long[] ply : histogram) {
+      maxNanos = Math.max(maxNanos, ply[NANOS]);
+    }
+    report.append(String.format("%4s %10s %10s %10s %10s%n", "ply", "expanded", "evaluated",
+        "cut-offs", "ms"));
+    for (int ply = 0; ply < histogram.length; ply++) {
+      long[] counts = histogram[ply];
+      char[] bar = new char[(int) (counts[NANOS] * BAR_WIDTH / maxNanos)];
+      Arrays.fill(bar, '#');
+      report.append(String.format("%4d %10d %10d %10d %10.2f %s%n", ply,
+          counts[SearchTrace.EXPAND], counts[SearchTrace.EVALUATE], counts[SearchTrace.CUT_OFF],
+          counts[NANOS] / 1e6, new String(bar)));
+    }
+    return report.toString();
+  }
+
+}
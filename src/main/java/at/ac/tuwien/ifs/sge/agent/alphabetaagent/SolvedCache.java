@@ -0,0 +1,116 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import java.util.Arrays;
+
+/**
+ * The states whose values were proven by searching every line below them to the end of the game,
+ * keyed by 64 bit state hashes. Besides the weighted utility and heuristic every entry holds the
+ * number of plies of the best line until the game is over.
+ *
+ * <p>Unlike the values of the transposition table a proven value never becomes stale, so entries
+ * are never replaced. Once the cache is full further states are not recorded until it is cleared.
+ */
+class SolvedCache {
+
+  static final int NONE = -1;
+
+  private final int capacity;
+  private final long[] keys;
+  private final double[] utilities;
+  private final double[] heuristics;
+  private final int[] distances;
+  private final int[] table;
+  private final int mask;
+
+  private int size;
+
+  SolvedCache(int capacity) {
+    this.capacity = Math.max(capacity, 1);
+    keys = new long[this.capacity];
+    utilities = new double[this.capacity];
+    heuristics = new double[this.capacity];
+    distances = new int[this.capacity];
+    table = new int[Integer.highestOneBit(this.capacity) << 2];
+    mask = table.length - 1;
+  }
+
+  private int indexOf(long key) {
+    int h = (int) (key ^ (key >>> 32)) * 0x9e3779b9;
+    return (h ^ (h >>> 16)) & mask;
+  }
+
+  /**
+   * @return the slot of a key or the free table index to insert it at, encoded as
+   * {@code -index - 1}
+   */
+  private int find(long key) {
+    for (int i = indexOf(key); ; i = (i + 1) & mask) {
+      int slot = table[i] - 1;
+      if (slot < 0) {
+        return -i - 1;
+      }
+      if (keys[slot] == key) {
+        return slot;
+      }
+    }
+  }
+
+  /**
+   * @param key the hash of the state
+   * @return the slot of the state or {@link #NONE} if it is not solved
+   */
+  int lookup(long key) {
+    int slot = find(key);
+    return slot < 0 ? NONE : slot;
+  }
+
+  double getUtility(int slot) {
+    return utilities[slot];
+  }
+
+  double getHeuristic(int slot) {
+    return heuristics[slot];
+  }
+
+  /**
+   * @return the number of plies of the best line until the game is over
+   */
+  int getDistance(int slot) {
+    return distances[slot];
+  }
+
+  /**
+   * Records a solved state.
+   *
+   * @return false if the cache is full
+   */
+  boolean store(long key, double utility, double heuristic, int distance) {
+    int slot = find(key);
+    if (slot < 0) {
+      if (size >= capacity) {
+        return false;
+      }
+      table[-slot - 1] = size + 1;
+      slot = size++;
+      keys[slot] = key;
+    }
+    utilities[slot] = utility;
+    heuristics[slot] = heuristic;
+    distances[slot] = distance;
+    return true;
+  }
+
+  void clear() {
+    Arrays.fill(table, 0);
+    size = 0;
+  }
+
+  int size() {
+    return size;
+  }
+
+  int capacity() {
+    return capacity;
+  }
+
+}
@@ -0,0 +1,95 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import at.ac.tuwien.ifs.sge.game.Game;
+import java.util.ServiceLoader;
+
+/**
+ * Computes 64 bit keys of game states for the caches of the agent. Equal states have to map to
+ * equal keys, distinct states should map to distinct keys with high probability.
+ *
+ * <p>Implementations are picked up with a {@link ServiceLoader} from the class loader of the
+ * game, i.e. a game JAR can ship a hasher by listing it in
+ * {@code META-INF/services/at.ac.tuwien.ifs.sge.agent.alphabetaagent.StateHasher}. The system
+ * property {@value #STATE_HASHER_PROPERTY} names a hasher class explicitly. If neither is given
+ * the {@link BoardStateHasher} is used.
+ *
+ * <p>An agent searching with several threads uses one hasher for all of them, so a hasher has to
+ * be thread-safe.
+ *
+ * @param <A> the type of actions
+ */
+public interface StateHasher<A> {
+
+  String STATE_HASHER_PROPERTY = "alphabetaagent.stateHasher";
+
+  /**
+   * @param game the game
+   * @return true if this hasher is able to hash the states of the given game
+   */
+  default boolean canHash(Game<?, ?> game) {
+    return true;
+  }
+
+  /**
+   * Hashes a state from scratch.
+   *
+   * @param game the game
+   * @return the key of the state
+   */
+  long hash(Game<A, ?> game);
+
+  /**
+   * Hashes a state reached by doing an action. Implementations may derive the key from the key of
+   * the parent state instead of hashing the whole state again.
+   *
+   * @param parentHash the key of the parent state
+   * @param parent the parent state
+   * @param action the action done in the parent state
+   * @param child the resulting state
+   * @return the key of the child state
+   */
+  default long hash(long parentHash, Game<A, ?> parent, A action, Game<A, ?> child) {
+    return hash(child);
+  }
+
+  /**
+   * Finds a hasher for a game.
+   *
+   * @param game the game
+   * @param <A> the type of actions
+   * @return the configured hasher, the first registered hasher able to hash the game or a {@link
+   * BoardStateHasher}
+   */
+  @SuppressWarnings("unchecked")
+  static <A> StateHasher<A> forGame(Game<A, ?> game) {
+    ClassLoader classLoader = game.getClass().getClassLoader();
+    String className = System.getProperty(STATE_HASHER_PROPERTY);
+    if (className != null) {
+      try {
+        return (StateHasher<A>) Class.forName(className, true, classLoader)
+            .getDeclaredConstructor().newInstance();
+      } catch (ReflectiveOperationException | ClassCastException e) {
+        throw new IllegalArgumentException("Could not instantiate state hasher " + className, e);
+      }
+    }
+    for (StateHasher<?> stateHasher : ServiceLoader.load(StateHasher.class, classLoader)) {
+      if (stateHasher.canHash(game)) {
+        return (StateHasher<A>) stateHasher;
+      }
+    }
+    return new BoardStateHasher<>();
+  }
+
+  /**
+   * Finalizer of SplitMix64, spreads the bits of a key.
+   *
+   * @param h a key
+   * @return the mixed key
+   */
+  static long mix(long h) {
+    h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+    h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+    return h ^ (h >>> 31);
+  }
+
+}
@@ -0,0 +1,112 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+/**
+ * Decides whether another iteration of the deepening fits into the time of a move. It measures the
+ * nodes per second and the effective branching factor of the last completed iteration and predicts
+ * the time of the next one from them. An iteration is only started before the soft deadline and if
+ * it is expected to be done before the hard deadline, after which the search is aborted regardless.
+ *
+ * <p>Alpha-beta searches alternate between cheaper and dearer plies, so the branching factor is the
+ * larger of the last step and the geometric mean of the last two steps.
+ */
+class TimeManager {
+
+  private final int softDeadlinePercent;
+
+  private long softDeadline;
+  private long hardDeadline;
+
+  private int iterations;
+  private long lastNodes;
+  private long lastNanos;
+  private long previousNodes;
+  private long beforePreviousNodes;
+  private long nanos;
+
+  /**
+   * @param softDeadlinePercent the share of the time of a move after which no iteration is started
+   * anymore
+   */
+  TimeManager(int softDeadlinePercent) {
+    this.softDeadlinePercent = Math.min(Math.max(softDeadlinePercent, 0), 100);
+  }
+
+  /**
+   * Starts measuring a move.
+   *
+   * @param start the time the move started at, in nanoseconds as of {@link System#nanoTime()}
+   * @param timeout the nanoseconds the move may take at most, the hard deadline
+   */
+  void start(long start, long timeout) {
+    hardDeadline = start + timeout;
+    softDeadline = start + timeout / 100 * softDeadlinePercent
+        + timeout % 100 * softDeadlinePercent / 100;
+    iterations = 0;
+    lastNodes = 0;
+    lastNanos = 0;
+    previousNodes = 0;
+    beforePreviousNodes = 0;
+    nanos = 0;
+  }
+
+  /**
+   * Records a completed iteration.
+   */
+  void addIteration(long nodes, long nanos) {
+    beforePreviousNodes = previousNodes;
+    previousNodes = lastNodes;
+    lastNodes = nodes;
+    lastNanos = nanos;
+    this.nanos += nanos;
+    iterations++;
+  }
+
+  int getIterations() {
+    return iterations;
+  }
+
+  /**
+   * @return the nodes per second of the last completed iteration
+   */
+  double getNodesPerSecond() {
+    return lastNanos == 0 ? 0 : lastNodes * 1e9D / lastNanos;
+  }
+
+  /**
+   * @return the predicted ratio of the nodes of the next iteration to the nodes of the last, or
+   * zero if fewer than two iterations were completed
+   */
+  double getEffectiveBranchingFactor() {
+    if (previousNodes == 0 || lastNodes == 0) {
+      return 0;
+    }
+    double effectiveBranchingFactor = (double) lastNodes / previousNodes;
+    if (beforePreviousNodes > 0) {
+      effectiveBranchingFactor = Math.max(effectiveBranchingFactor,
+          Math.sqrt((double) lastNodes / beforePreviousNodes));
+    }
+    return Math.max(effectiveBranchingFactor, 1D);
+  }
+
+  /**
+   * @return the predicted nanoseconds of the next iteration. Without two completed iterations to
+   * measure the branching factor with, the next iteration is assumed to take as long as all before.
+   */
+  long predictNextNanos() {
+    double effectiveBranchingFactor = getEffectiveBranchingFactor();
+    if (effectiveBranchingFactor == 0) {
+      return nanos;
+    }
+    double predictedNodes = lastNodes * effectiveBranchingFactor;
+    return (long) Math.min(predictedNodes * 1e9D / getNodesPerSecond(), Long.MAX_VALUE);
+  }
+
+  /**
+   * @param now the current time in nanoseconds as of {@link System#nanoTime()}
+   * @return true if the next iteration may be started
+   */
+  boolean shouldStartIteration(long now) {
+    return now - softDeadline < 0 && hardDeadline - now > predictNextNanos();
+  }
+
+}
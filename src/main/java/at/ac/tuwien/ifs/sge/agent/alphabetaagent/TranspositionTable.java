@@ -0,0 +1,241 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A bounded transposition table keyed by 64 bit state hashes. Every entry stores a utility and a
+ * heuristic value, each with its own bound type, the remaining depth it was searched to and the
+ * best action found. Entries live in two-way buckets; on a collision the shallower entry is
+ * replaced.
+ *
+ * <p>The table can be shared by several search threads. Every bucket has a stamp which is odd
+ * while the bucket is written. {@link #load(long, Entry)} and {@link #getBestAction(long)} report
+ * a miss instead of waiting if the stamp changed while they read, and a store into a bucket that
+ * is being written is dropped. The statistics are not synchronized and only approximate then.
+ *
+ * @param <A> the type of actions
+ */
+public class TranspositionTable<A> {
+
+  public static final byte EMPTY = 0;
+  public static final byte EXACT = 1;
+  public static final byte LOWER_BOUND = 2;
+  public static final byte UPPER_BOUND = 3;
+
+  private final int mask;
+  private final long[] keys;
+  private final double[] utilities;
+  private final double[] heuristics;
+  private final byte[] utilityBounds;
+  private final byte[] heuristicBounds;
+  private final int[] depths;
+  private final Object[] bestActions;
+  private final AtomicIntegerArray stamps;
+
+  private int size;
+  private long probes;
+  private long hits;
+
+  public TranspositionTable(int capacity) {
+    int slots = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+    mask = slots - 1;
+    keys = new long[slots];
+    utilities = new double[slots];
+    heuristics = new double[slots];
+    utilityBounds = new byte[slots];
+    heuristicBounds = new byte[slots];
+    depths = new int[slots];
+    bestActions = new Object[slots];
+    stamps = new AtomicIntegerArray(slots >>> 1);
+  }
+
+  private int bucketOf(long key) {
+    return (int) (key ^ (key >>> 32)) & mask & ~1;
+  }
+
+  /**
+   * Copies the entry of a state.
+   *
+   * @param key the hash of the state
+   * @param entry the entry to copy into
+   * @return true if there is an entry and it was not written while it was copied
+   */
+  public boolean load(long key, Entry<A> entry) {
+    probes++;
+    int bucket = bucketOf(key);
+    int stamp = stamps.get(bucket >>> 1);
+    if ((stamp & 1) != 0) {
+      return false;
+    }
+    for (int slot = bucket; slot <= bucket + 1; slot++) {
+      if (utilityBounds[slot] != EMPTY && keys[slot] == key) {
+        entry.depth = depths[slot];
+        entry.utility = utilities[slot];
+        entry.utilityBound = utilityBounds[slot];
+        entry.heuristic = heuristics[slot];
+        entry.heuristicBound = heuristicBounds[slot];
+        entry.bestAction = getBestAction(slot);
+        VarHandle.acquireFence();
+        if (stamps.get(bucket >>> 1) != stamp) {
+          return false;
+        }
+        hits++;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public void store(long key, int depth,
+      double utility, byte utilityBound,
+      double heuristic, byte heuristicBound,
+      A bestAction) {
+    int bucket = bucketOf(key);
+    int stamp = stamps.get(bucket >>> 1);
+    if ((stamp & 1) != 0 || !stamps.compareAndSet(bucket >>> 1, stamp, stamp + 1)) {
+      return;
+    }
+    try {
+      store(bucket, key, depth, utility, utilityBound, heuristic, heuristicBound, bestAction);
+    } finally {
+      stamps.set(bucket >>> 1, stamp + 2);
+    }
+  }
+
+  private void store(int bucket, long key, int depth,
+      double utility, byte utilityBound,
+      double heuristic, byte heuristicBound,
+      A bestAction) {
+    int slot = bucket;
+    if (!(utilityBounds[bucket] != EMPTY && keys[bucket] == key)) {
+      int other = bucket + 1;
+      if (utilityBounds[other] == EMPTY || keys[other] == key || depths[other] < depths[bucket]) {
+        slot = other;
+      }
+    }
+
+    if (utilityBounds[slot] == EMPTY) {
+      size++;
+    } else if (keys[slot] == key && depths[slot] > depth) {
+      return;
+    }
+
+    keys[slot] = key;
+    depths[slot] = depth;
+    utilities[slot] = utility;
+    utilityBounds[slot] = utilityBound;
+    heuristics[slot] = heuristic;
+    heuristicBounds[slot] = heuristicBound;
+    bestActions[slot] = bestAction;
+  }
+
+  /**
+   * @return true if a value of the given bound type decides a search inside the given window
+   */
+  static boolean isUsable(byte bound, double value, double alpha, double beta) {
+    return bound == EXACT
+        || (bound == LOWER_BOUND && value >= beta)
+        || (bound == UPPER_BOUND && value <= alpha);
+  }
+
+  @SuppressWarnings("unchecked")
+  private A getBestAction(int slot) {
+    return (A) bestActions[slot];
+  }
+
+  public A getBestAction(long key) {
+    int bucket = bucketOf(key);
+    int stamp = stamps.get(bucket >>> 1);
+    if ((stamp & 1) != 0) {
+      return null;
+    }
+    for (int slot = bucket; slot <= bucket + 1; slot++) {
+      if (utilityBounds[slot] != EMPTY && keys[slot] == key) {
+        A bestAction = getBestAction(slot);
+        VarHandle.acquireFence();
+        return stamps.get(bucket >>> 1) == stamp ? bestAction : null;
+      }
+    }
+    return null;
+  }
+
+  public void clear() {
+    Arrays.fill(utilityBounds, EMPTY);
+    Arrays.fill(heuristicBounds, EMPTY);
+    Arrays.fill(bestActions, null);
+    size = 0;
+    probes = 0;
+    hits = 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public int capacity() {
+    return keys.length;
+  }
+
+  public long getProbes() {
+    return probes;
+  }
+
+  public long getHits() {
+    return hits;
+  }
+
+  /**
+   * A copy of an entry, reusable across lookups.
+   *
+   * @param <A> the type of actions
+   */
+  public static final class Entry<A> {
+
+    private int depth;
+    private double utility;
+    private byte utilityBound;
+    private double heuristic;
+    private byte heuristicBound;
+    private A bestAction;
+
+    /**
+     * Checks if the entry can replace a search of the given depth inside the given windows. Both
+     * the utility and the heuristic have to be usable on their own.
+     */
+    public boolean isUsable(int depth,
+        double utilityAlpha, double utilityBeta,
+        double heuristicAlpha, double heuristicBeta) {
+      return this.depth >= depth
+          && TranspositionTable.isUsable(utilityBound, utility, utilityAlpha, utilityBeta)
+          && TranspositionTable.isUsable(heuristicBound, heuristic, heuristicAlpha, heuristicBeta);
+    }
+
+    public int getDepth() {
+      return depth;
+    }
+
+    public double getUtility() {
+      return utility;
+    }
+
+    public byte getUtilityBound() {
+      return utilityBound;
+    }
+
+    public double getHeuristic() {
+      return heuristic;
+    }
+
+    public byte getHeuristicBound() {
+      return heuristicBound;
+    }
+
+    public A getBestAction() {
+      return bestAction;
+    }
+
+  }
+
+}
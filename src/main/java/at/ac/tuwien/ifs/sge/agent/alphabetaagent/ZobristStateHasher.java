@@ -0,0 +1,59 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import at.ac.tuwien.ifs.sge.game.ActionRecord;
+import at.ac.tuwien.ifs.sge.game.Game;
+
+/**
+ * Zobrist-style hasher which keys a state by the actions that lead to it. Every pair of player
+ * and action is mapped to a pseudo random 64 bit number; the key of a state is the exclusive or of
+ * the numbers of all actions done so far and of the current player. A child key is derived from
+ * its parent key in constant time.
+ *
+ * <p>This is only correct for games in which the state is determined by which player did which
+ * actions, regardless of the order, e.g. games where pieces are placed but never moved. It has to
+ * be selected explicitly.
+ *
+ * @param <A> the type of actions
+ */
+public class ZobristStateHasher<A> implements StateHasher<A> {
+
+  private static final long PLAYER_SEED = 0x9e3779b97f4a7c15L;
+  private static final long ACTION_SEED = 0xc2b2ae3d27d4eb4fL;
+
+  private final long seed;
+
+  public ZobristStateHasher() {
+    this(0x2545f4914f6cdd1dL);
+  }
+
+  public ZobristStateHasher(long seed) {
+    this.seed = seed;
+  }
+
+  private long ofPlayer(int player) {
+    return StateHasher.mix(seed + PLAYER_SEED * (player + 1L));
+  }
+
+  private long ofAction(int player, A action) {
+    long h = action == null ? 0L : action.hashCode();
+    return StateHasher.mix(seed ^ (ACTION_SEED * (h + 1L) + PLAYER_SEED * (player + 1L)));
+  }
+
+  @Override
+  public long hash(Game<A, ?> game) {
+    long h = ofPlayer(game.getCurrentPlayer());
+    for (ActionRecord<A> actionRecord : game.getActionRecords()) {
+      h ^= ofAction(actionRecord.getPlayer(), actionRecord.getAction());
+    }
+    return h;
+  }
+
+  @Override
+  public long hash(long parentHash, Game<A, ?> parent, A action, Game<A, ?> child) {
+    return parentHash
+        ^ ofPlayer(parent.getCurrentPlayer())
+        ^ ofAction(parent.getCurrentPlayer(), action)
+        ^ ofPlayer(child.getCurrentPlayer());
+  }
+
+}
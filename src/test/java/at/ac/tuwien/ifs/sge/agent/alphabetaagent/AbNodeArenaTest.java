@@ -0,0 +1,240 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import at.ac.tuwien.ifs.sge.agent.alphabetaagent.AbNodeArena.NodeComparator;
+import at.ac.tuwien.ifs.sge.game.Game;
+import java.util.Collections;
+import org.junit.Test;
+
+public class AbNodeArenaTest {
+
+  AbNodeArena<Integer> arena = new AbNodeArena<>(2);
+
+  private void expand(int node) {
+    Game<Integer, ?> game = arena.getGame(node);
+    for (Integer action : game.getPossibleActions()) {
+      arena.addChild(node, game.doAction(action), action, action, -action);
+    }
+  }
+
+  @Test
+  public void test_arena_addChild() {
+    TestCountGame game = new TestCountGame(0, true, Collections.emptyList(), 0, -2, 2);
+    assertTrue(arena.findRoot(game));
+    int root = arena.getRoot();
+    expand(root);
+
+    assertEquals(3, arena.getChildCount(root));
+    assertEquals(4, arena.size());
+    int expected = -1;
+    for (int child = arena.getFirstChild(root); child != AbNodeArena.NONE;
+        child = arena.getNextSibling(child)) {
+      assertEquals(root, arena.getParent(child));
+      assertEquals(1, arena.getAbsoluteDepth(child));
+      assertEquals(1, arena.getCurrentPlayer(child));
+      assertEquals(expected++, (int) arena.getGame(child).getPreviousAction());
+    }
+    assertFalse(arena.isLeaf(root));
+    assertTrue(arena.isRoot(root));
+  }
+
+  @Test
+  public void test_arena_sortChildren() {
+    TestCountGame game = new TestCountGame(0, true, Collections.emptyList(), 0, -2, 2);
+    arena.findRoot(game);
+    int root = arena.getRoot();
+    expand(root);
+
+    arena.sortChildren(root, (o1, o2) -> Double.compare(arena.getHeuristic(o1),
+        arena.getHeuristic(o2)));
+
+    assertEquals(1, (int) arena.getGame(arena.getChild(root, 0)).getPreviousAction());
+    assertEquals(0, (int) arena.getGame(arena.getChild(root, 1)).getPreviousAction());
+    assertEquals(-1, (int) arena.getGame(arena.getChild(root, 2)).getPreviousAction());
+    assertEquals(AbNodeArena.NONE, arena.getNextSibling(arena.getChild(root, 2)));
+  }
+
+  @Test
+  public void test_arena_selectChild() {
+    TestCountGame game = new TestCountGame(0, true, Collections.emptyList(), 0, -2, 2);
+    arena.findRoot(game);
+    int root = arena.getRoot();
+    expand(root);
+
+    NodeComparator byHeuristic = (o1, o2) -> Double.compare(arena.getHeuristic(o1),
+        arena.getHeuristic(o2));
+    assertEquals(1, (int) arena.getAction(arena.selectChild(root, 0, byHeuristic)));
+    assertEquals(0, (int) arena.getAction(arena.selectChild(root, 1, byHeuristic)));
+    assertEquals(-1, (int) arena.getAction(arena.selectChild(root, 2, byHeuristic)));
+    assertEquals(-1, (int) arena.getAction(arena.getChild(root, 0)));
+  }
+
+  @Test
+  public void test_arena_childUtilities() {
+    TestCountGame game = new TestCountGame(0, true, Collections.emptyList(), 0, -2, 2);
+    arena.findRoot(game);
+    int root = arena.getRoot();
+    assertTrue(arena.getMinChildUtility(root) > arena.getMaxChildUtility(root));
+
+    arena.addChildUtility(root, 1);
+    arena.addChildUtility(root, -2);
+    arena.addChildUtility(root, 0);
+    assertEquals(-2, arena.getMinChildUtility(root), 0);
+    assertEquals(1, arena.getMaxChildUtility(root), 0);
+
+    arena.resetChildUtilities(root);
+    assertTrue(arena.getMinChildUtility(root) > arena.getMaxChildUtility(root));
+  }
+
+  @Test
+  public void test_arena_findRoot() {
+    Game<Integer, Integer[]> game = new TestCountGame(0, true, Collections.emptyList(), 0, -2, 2);
+    arena.findRoot(game);
+    int root = arena.getRoot();
+    expand(root);
+    for (int child = arena.getFirstChild(root); child != AbNodeArena.NONE;
+        child = arena.getNextSibling(child)) {
+      expand(child);
+    }
+    assertEquals(13, arena.size());
+
+    game = game.doAction(1).doAction(0);
+    assertTrue(arena.findRoot(game));
+    root = arena.getRoot();
+    assertEquals(1, arena.size());
+    assertEquals(2, arena.getAbsoluteDepth(root));
+    assertEquals(game, arena.getGame(root));
+    assertTrue(arena.isRoot(root));
+
+    expand(root);
+    assertFalse(arena.findRoot(new TestCountGame()));
+    assertEquals(1, arena.size());
+  }
+
+  @Test
+  public void test_arena_prune() {
+    TestCountGame game = new TestCountGame(0, true, Collections.emptyList(), 0, -2, 2);
+    arena.findRoot(game);
+    int root = arena.getRoot();
+    expand(root);
+    for (int child = arena.getFirstChild(root); child != AbNodeArena.NONE;
+        child = arena.getNextSibling(child)) {
+      expand(child);
+    }
+    assertEquals(13, arena.size());
+
+    arena.prune(9, (o1, o2) -> Double.compare(arena.getUtility(o1), arena.getUtility(o2)));
+    root = arena.getRoot();
+
+    assertEquals(7, arena.size());
+    assertEquals(6, arena.getPrunedNodes());
+    assertEquals(3, arena.getChildCount(root));
+    assertEquals(1, (int) arena.getAction(arena.getChild(root, 0)));
+    assertEquals(3, arena.getChildCount(arena.getChild(root, 0)));
+    assertTrue(arena.isLeaf(arena.getChild(root, 1)));
+    assertTrue(arena.isLeaf(arena.getChild(root, 2)));
+    assertEquals(game, arena.getGame(root));
+  }
+
+  @Test
+  public void test_arena_findRoot_shrinks() {
+    TestCountGame game = new TestCountGame(-10, 10);
+    arena.findRoot(game);
+    for (int node = arena.getRoot(); arena.size() < 4096; node++) {
+      expand(node);
+    }
+    int capacity = arena.capacity();
+
+    assertTrue(arena.findRoot(game.doAction(1).doAction(0)));
+    assertTrue(arena.capacity() < capacity);
+    assertTrue(arena.capacity() <= Math.max(arena.size(), 1024));
+  }
+
+  @Test
+  public void test_arena_pendingActions() {
+    TestCountGame game = new TestCountGame(0, true, Collections.emptyList(), 0, -2, 2);
+    arena.findRoot(game);
+    int root = arena.getRoot();
+    arena.setPendingActions(root, new Object[] {1, -1});
+
+    assertTrue(arena.hasPendingActions(root));
+    assertEquals(1, (int) arena.nextPendingAction(root));
+    assertTrue(arena.hasPendingActions(root));
+    assertEquals(-1, (int) arena.nextPendingAction(root));
+    assertFalse(arena.hasPendingActions(root));
+    assertEquals(null, arena.nextPendingAction(root));
+
+    arena.setPendingActions(root, new Object[] {0});
+    arena.dropChildren(root);
+    assertFalse(arena.hasPendingActions(root));
+  }
+
+  @Test
+  public void test_arena_dropChildren_freesSlots() {
+    TestCountGame game = new TestCountGame(0, true, Collections.emptyList(), 0, -2, 2);
+    arena.findRoot(game);
+    int root = arena.getRoot();
+    expand(root);
+    int child = arena.getFirstChild(root);
+    expand(child);
+    int grandChild = arena.getFirstChild(child);
+    expand(grandChild);
+    assertEquals(10, arena.size());
+
+    arena.dropChildren(child);
+    assertTrue(arena.isLeaf(child));
+    assertEquals(4, arena.size());
+    assertEquals(10, arena.slots());
+
+    expand(child);
+    assertEquals(7, arena.size());
+    assertEquals(10, arena.slots());
+    for (int node = arena.getFirstChild(child); node != AbNodeArena.NONE;
+        node = arena.getNextSibling(node)) {
+      assertEquals(child, arena.getParent(node));
+      assertTrue(arena.isLeaf(node));
+      assertFalse(arena.hasPendingActions(node));
+    }
+  }
+
+  @Test
+  public void test_arena_findRoot_keepsChanceSamples() {
+    Game<Integer, Integer> game = new TestDiceGame();
+    arena.findRoot(game);
+    expand(arena.getRoot());
+    int chance = arena.getChild(arena.getRoot(), 5);
+    arena.sampleDetermineAction(chance, 20);
+    assertEquals(20, arena.getChanceTotal(chance));
+
+    game = game.doAction(arena.getAction(chance));
+    assertTrue(arena.findRoot(game));
+    assertEquals(20, arena.getChanceTotal(arena.getRoot()));
+    assertTrue(arena.findRoot(game));
+    assertEquals(20, arena.getChanceTotal(arena.getRoot()));
+  }
+
+  @Test
+  public void test_arena_evictGames() {
+    TestCountGame game = new TestCountGame(0, true, Collections.emptyList(), 0, -2, 2);
+    arena.findRoot(game);
+    int root = arena.getRoot();
+    expand(root);
+    int child = arena.getFirstChild(root);
+    expand(child);
+    int grandChild = arena.getFirstChild(child);
+    int previousAction = arena.getGame(child).getPreviousAction();
+
+    assertEquals(1, arena.evictGames());
+    assertEquals(0, arena.getRestoredGames());
+    assertEquals(previousAction, (int) arena.getGame(child).getPreviousAction());
+    assertEquals(1, arena.getRestoredGames());
+    assertEquals(arena.getAction(grandChild), arena.getGame(grandChild).getPreviousAction());
+    assertEquals(2, arena.getGame(grandChild).getActionRecords().size());
+    assertEquals(game, arena.getGame(root));
+    assertEquals(1, arena.getRestoredGames());
+  }
+
+}
@@ -3,10 +3,14 @@ package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import com.sun.management.ThreadMXBean;
 
 import at.ac.tuwien.ifs.sge.engine.Logger;
 import at.ac.tuwien.ifs.sge.game.Game;
 import at.ac.tuwien.ifs.sge.game.Gib;
+import java.lang.management.ManagementFactory;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.concurrent.TimeUnit;
@@ -47,6 +51,25 @@ public class AlphaBetaAgentTest {
   public void setUp() {
   }
 
+  /**
+   * Plays the count game from -2 to 2 as the first player, checking every move of the agent, and
+   * runs the given check after every move.
+   */
+  private void playCountGame(AlphaBetaAgent<Game<Integer, Integer[]>, Integer> agent,
+      Runnable afterMove) {
+    int player = 0;
+    testGame = new TestCountGame(player, true, Collections.emptyList(), 0, -2, 2);
+    agent.setUp(2, player);
+    while (!testGame.isGameOver()) {
+      assertEquals(1 - 2 * player, (int) agent.computeNextAction(testGame, 10, TimeUnit.SECONDS));
+      afterMove.run();
+      testGame = testGame.doAction(1 - 2 * player);
+      if (!testGame.isGameOver()) {
+        testGame = testGame.doAction(0);
+      }
+    }
+  }
+
   @Test
   public void test_agent_2Players_depth1_0() {
     agent.setUp(2, 0);
@@ -75,6 +98,226 @@ public class AlphaBetaAgentTest {
     }
   }
 
+  @Test
+  public void test_agent_2Players_depth2_0_threads() {
+    AlphaBetaAgent<Game<Integer, Integer[]>, Integer> agent = new AlphaBetaAgent<>(
+        new AlphaBetaAgent.Options().transpositionTableSize(1 << 16).threads(4), log);
+    long[] helperNodes = new long[1];
+    playCountGame(agent, () -> {
+      for (SearchStatistics helperStatistics : agent.getHelperStatistics()) {
+        helperNodes[0] += helperStatistics.getNodesVisited();
+      }
+    });
+    agent.tearDown();
+    assertEquals(3, agent.getHelperStatistics().size());
+    assertTrue(helperNodes[0] > 0);
+  }
+
+  @Test
+  public void test_agent_2Players_depth2_0_maxTreeSize() {
+    AlphaBetaAgent<Game<Integer, Integer[]>, Integer> agent = new AlphaBetaAgent<>(
+        new AlphaBetaAgent.Options().transpositionTableSize(1 << 16).threads(1).maxTreeSize(64),
+        log);
+    playCountGame(agent, () -> assertTrue(agent.getTree().size() <= 64));
+    assertTrue(agent.getTree().getPrunedNodes() > 0);
+  }
+
+  @Test
+  public void test_agent_2Players_depth2_0_lazyExpansion() {
+    AlphaBetaAgent<Game<Integer, Integer[]>, Integer> agent = new AlphaBetaAgent<>(
+        new AlphaBetaAgent.Options().transpositionTableSize(1 << 16).threads(1)
+            .maxTreeSize(1 << 16).lazyExpansion(true), log);
+    int[] pendingNodes = new int[1];
+    playCountGame(agent, () -> {
+      AbNodeArena<Integer> tree = agent.getTree();
+      for (int node = 0; node < tree.slots(); node++) {
+        if (tree.hasPendingActions(node)) {
+          pendingNodes[0]++;
+        }
+      }
+    });
+    // cut-offs left actions of some nodes without children
+    assertTrue(pendingNodes[0] > 0);
+  }
+
+  @Test
+  public void test_agent_2Players_depth2_0_replayGames() {
+    AlphaBetaAgent<Game<Integer, Integer[]>, Integer> agent = new AlphaBetaAgent<>(
+        new AlphaBetaAgent.Options().transpositionTableSize(1 << 16).threads(1)
+            .maxTreeSize(1 << 16).lazyExpansion(false).replayGames(true), log);
+    long[] gamesRestored = new long[1];
+    playCountGame(agent, () -> gamesRestored[0] += agent.getStatistics().getGamesRestored());
+    assertTrue(gamesRestored[0] > 0);
+  }
+
+  @Test
+  public void test_agent_2Players_depth2_0_ponder() {
+    AlphaBetaAgent<Game<Integer, Integer[]>, Integer> agent = new AlphaBetaAgent<>(
+        new AlphaBetaAgent.Options().transpositionTableSize(1 << 16).threads(1)
+            .maxTreeSize(1 << 16).ponder(true), log);
+    int[] pondered = new int[1];
+    playCountGame(agent, () -> {
+      try {
+        // the opponent thinks until the agent pondered a whole iteration
+        if (agent.isPondering()) {
+          assertTrue(agent.awaitPonderIteration(1, TimeUnit.MINUTES));
+          pondered[0]++;
+        }
+      } catch (InterruptedException e) {
+        throw new AssertionError(e);
+      }
+    });
+    agent.tearDown();
+    assertTrue(pondered[0] > 0);
+    assertTrue(agent.getPonderStatistics().getIterations() >= pondered[0]);
+    assertTrue(agent.getPonderStatistics().getNodesVisited() > 0);
+  }
+
+  @Test
+  public void test_agent_principalVariationSearch_sameValues() {
+    long scoutFailures = 0;
+    long aspirationFailures = 0;
+    // the share game has no transpositions, so no search can graft a deeper value onto another
+    AlphaBetaAgent.Options options = new AlphaBetaAgent.Options().transpositionTableSize(1 << 16)
+        .threads(1).maxTreeSize(1 << 16).lazyExpansion(false).replayGames(false)
+        .expectimax(false).valueBounds(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY)
+        .ponder(false);
+    for (int length = 1; length <= 8; length++) {
+      AlphaBetaAgent<Game<Integer, Long>, Integer> plainAgent = new AlphaBetaAgent<>(
+          options.principalVariationSearch(false).aspirationWindow(Double.POSITIVE_INFINITY), log);
+      AlphaBetaAgent<Game<Integer, Long>, Integer> scoutAgent = new AlphaBetaAgent<>(
+          options.principalVariationSearch(true).aspirationWindow(1e-3), log);
+      plainAgent.setUp(2, 0);
+      scoutAgent.setUp(2, 0);
+      Game<Integer, Long> game = new TestShareGame(2, 3, length, 42);
+
+      assertEquals(plainAgent.computeNextAction(game, 10, TimeUnit.SECONDS),
+          scoutAgent.computeNextAction(game, 10, TimeUnit.SECONDS));
+      AbNodeArena<Integer> plainTree = plainAgent.getTree();
+      AbNodeArena<Integer> scoutTree = scoutAgent.getTree();
+      assertEquals(plainTree.getUtility(plainTree.getRoot()),
+          scoutTree.getUtility(scoutTree.getRoot()), 0);
+      assertEquals(plainTree.getHeuristic(plainTree.getRoot()),
+          scoutTree.getHeuristic(scoutTree.getRoot()), 0);
+      scoutFailures += scoutAgent.getStatistics().getScoutFailures();
+      aspirationFailures += scoutAgent.getStatistics().getAspirationFailures();
+    }
+    assertTrue(scoutFailures > 0);
+    assertTrue(aspirationFailures > 0);
+  }
+
+  @Test
+  public void test_agent_lazyExpansion_createsFewerNodes() {
+    AlphaBetaAgent<Game<Integer, Integer[]>, Integer> eagerAgent = new AlphaBetaAgent<>(
+        new AlphaBetaAgent.Options().maxDepth(6).transpositionTableSize(1 << 16).threads(1)
+            .maxTreeSize(1 << 16).lazyExpansion(false), log);
+    AlphaBetaAgent<Game<Integer, Integer[]>, Integer> lazyAgent = new AlphaBetaAgent<>(
+        new AlphaBetaAgent.Options().maxDepth(6).transpositionTableSize(1 << 16).threads(1)
+            .maxTreeSize(1 << 16).lazyExpansion(true), log);
+    eagerAgent.setUp(2, 0);
+    lazyAgent.setUp(2, 0);
+
+    assertEquals(eagerAgent.computeNextAction(new TestCountGame(-3, 3), 10, TimeUnit.SECONDS),
+        lazyAgent.computeNextAction(new TestCountGame(-3, 3), 10, TimeUnit.SECONDS));
+    assertTrue(lazyAgent.getStatistics().getNodesCreated()
+        < eagerAgent.getStatistics().getNodesCreated());
+  }
+
+  @Test
+  public void test_agent_reusesSearchedNodes() {
+    AlphaBetaAgent<Game<Integer, Integer[]>, Integer> reusingAgent = new AlphaBetaAgent<>(
+        new AlphaBetaAgent.Options().transpositionTableSize(2).threads(1).maxTreeSize(1 << 16)
+            .lazyExpansion(false), log);
+    agent.setUp(2, 0);
+    reusingAgent.setUp(2, 0);
+
+    assertEquals(agent.computeNextAction(new TestCountGame(-3, 3), 10, TimeUnit.SECONDS),
+        reusingAgent.computeNextAction(new TestCountGame(-3, 3), 10, TimeUnit.SECONDS));
+    assertTrue(reusingAgent.getStatistics().getNodesReused() > 0);
+  }
+
+  @Test
+  public void test_agent_stopsOnceSolved() {
+    AlphaBetaAgent<Game<Integer, Integer>, Integer> nimAgent = new AlphaBetaAgent<>(log);
+    nimAgent.setUp(2, 0);
+    Game<Integer, Integer> game = new TestNimGame(10);
+    Integer action = nimAgent.computeNextAction(game, 10, TimeUnit.SECONDS);
+    assertEquals(1, (int) action);
+    int iterations = nimAgent.getStatistics().getIterations();
+    assertTrue(iterations < 64);
+
+    game = game.doAction(action).doAction(2);
+    assertEquals(1, (int) nimAgent.computeNextAction(game, 10, TimeUnit.SECONDS));
+    assertTrue(nimAgent.getStatistics().getNodesSolved() > 0);
+    assertTrue(nimAgent.getStatistics().getIterations() < iterations);
+  }
+
+  @Test
+  public void test_agent_delaysSolvedLoss() {
+    AlphaBetaAgent<Game<Integer, Integer>, Integer> nimAgent = new AlphaBetaAgent<>(log);
+    nimAgent.setUp(3, 0);
+    // the opponents win either way, taking one token makes them need a ply more
+    assertEquals(1, (int) nimAgent.computeNextAction(new TestNimGame(3, 4, 2), 10,
+        TimeUnit.SECONDS));
+  }
+
+  /**
+   * @return the utility of a player if every player maximises its own, by plain minimax
+   */
+  private static double minimax(Game<Integer, ?> game, int player) {
+    if (game.isGameOver()) {
+      return game.getUtilityValue(player);
+    }
+    boolean isMax = game.getCurrentPlayer() == player;
+    double value = isMax ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+    for (Integer action : game.getPossibleActions()) {
+      double childValue = minimax(game.doAction(action), player);
+      value = isMax ? Math.max(value, childValue) : Math.min(value, childValue);
+    }
+    return value;
+  }
+
+  @Test
+  public void test_agent_heuristicWindowKeepsUtility() {
+    // the heuristic of the score game has nothing to do with its utility, so a node cut off only
+    // because its heuristic window closed has no more than a bound of its utility
+    for (long seed = 0; seed < 50; seed++) {
+      AlphaBetaAgent<Game<Integer, Long>, Integer> scoreAgent = new AlphaBetaAgent<>(log);
+      scoreAgent.setUp(2, 0);
+      Game<Integer, Long> game = new TestScoreGame(2, 3, 5, seed);
+      Integer action = scoreAgent.computeNextAction(game, 10, TimeUnit.SECONDS);
+      assertEquals("seed " + seed, minimax(game, 0), minimax(game.doAction(action), 0), 0);
+    }
+  }
+
+  @Test
+  public void test_agent_statistics() {
+    agent.setUp(2, 0);
+    agent.computeNextAction(new TestCountGame(-3, 3), 10, TimeUnit.SECONDS);
+
+    SearchStatistics statistics = agent.getStatistics();
+    assertTrue(statistics.getIterations() > 0);
+    assertTrue(statistics.getDepth() > 0);
+    assertTrue(statistics.getNodesExpanded() > 0);
+    assertTrue(statistics.getNodesEvaluated() > 0);
+    assertTrue(statistics.getNanos() > 0);
+    assertEquals(agent.getTree().size(), statistics.getTreeSize());
+
+    long nodes = 0;
+    for (int i = 0; i < statistics.getIterations(); i++) {
+      nodes += statistics.getIterationNodes(i);
+    }
+    assertEquals(statistics.getNodesVisited(), nodes);
+
+    long cutOffs = 0;
+    for (int ply = 0; ply <= statistics.getMaxCutOffPly(); ply++) {
+      cutOffs += statistics.getCutOffs(ply);
+    }
+    assertEquals(statistics.getCutOffs(), cutOffs);
+    assertTrue(statistics.getFirstMoveCutOffRate() <= 1D);
+    assertTrue(statistics.getTranspositionHits() <= statistics.getTranspositionProbes());
+  }
+
   @Test
   public void test_agent_2Players_depth2_1() {
     int player = 1;
@@ -123,6 +366,18 @@ public class AlphaBetaAgentTest {
 
   }
 
+  @Test
+  public void test_agent_expectimax_1Player() {
+    AlphaBetaAgent<TestDiceGame, Integer> agent = new AlphaBetaAgent<>(
+        new AlphaBetaAgent.Options().transpositionTableSize(1 << 16).threads(1)
+            .maxTreeSize(1 << 16).lazyExpansion(false).replayGames(false).expectimax(true)
+            .valueBounds(-1, 1), log);
+    agent.setUp(1, 0);
+
+    assertEquals(7, (int) agent.computeNextAction(new TestDiceGame(), 1000, TimeUnit.SECONDS));
+    assertTrue(agent.getStatistics().getCutOffs() > 0);
+  }
+
   @Test
   public void test_agent_2Players_depth1_2() {
     gib = new Gib(Collections.singletonList("L"), Arrays.asList("L", "R"), 2);
@@ -299,5 +554,43 @@ public class AlphaBetaAgentTest {
     assertArrayEquals(new double[] {0, 1}, gib.getGameUtilityValue(), 0.001D);
   }
 
+  @Test
+  public void test_agent_labelAlphaBetaTree_allocationFree() {
+    ThreadMXBean threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+    threadMXBean.setThreadAllocatedMemoryEnabled(true);
+    long threadId = Thread.currentThread().getId();
+
+    // a table of two entries, so that the labeling has to search the tree instead of reusing it
+    AlphaBetaAgent<Game<Integer, Integer[]>, Integer> labelingAgent = new AlphaBetaAgent<>(
+        new AlphaBetaAgent.Options().maxDepth(8).transpositionTableSize(2), log);
+    labelingAgent.setUp(2, 0);
+    labelingAgent.computeNextAction(new TestCountGame(-3, 3), 10, TimeUnit.MINUTES);
+
+    AbNodeArena<Integer> tree = labelingAgent.getTree();
+    int root = tree.getRoot();
+    for (int i = 0; i < 100; i++) {
+      for (int node = 0; node < tree.slots(); node++) {
+        tree.clearSearch(node);
+      }
+      labelingAgent.labelAlphaBetaTree(root, 8,
+          Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+          Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+    }
+    for (int node = 0; node < tree.slots(); node++) {
+      tree.clearSearch(node);
+    }
+
+    long overhead = threadMXBean.getThreadAllocatedBytes(threadId);
+    overhead = threadMXBean.getThreadAllocatedBytes(threadId) - overhead;
+    long before = threadMXBean.getThreadAllocatedBytes(threadId);
+    int visited = labelingAgent.labelAlphaBetaTree(root, 8,
+        Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+        Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+    long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - before - overhead;
+
+    assertTrue(visited > 100);
+    assertEquals(0, allocated);
+  }
 
 }
@@ -0,0 +1,72 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ChanceEstimatorTest {
+
+  ChanceEstimator<Integer> estimator = new ChanceEstimator<>(2);
+
+  @Test
+  public void test_chanceEstimator_counts() {
+    assertNull(estimator.getMostFrequent());
+    assertFalse(estimator.isMostFrequent(1));
+
+    for (int i = 0; i < 20; i++) {
+      estimator.add(i % 5);
+    }
+    estimator.add(3);
+
+    assertEquals(21, estimator.getTotal());
+    assertEquals(5, estimator.getCount(3));
+    assertEquals(4, estimator.getCount(0));
+    assertEquals(0, estimator.getCount(5));
+    assertEquals(3, (int) estimator.getMostFrequent());
+    assertTrue(estimator.isMostFrequent(3));
+    assertFalse(estimator.isMostFrequent(0));
+
+    estimator.add(0);
+    assertTrue(estimator.isMostFrequent(0));
+    assertTrue(estimator.isMostFrequent(3));
+  }
+
+  @Test
+  public void test_chanceEstimator_addAll() {
+    ChanceEstimator<Integer> other = new ChanceEstimator<>();
+    for (int i = 0; i < 6; i++) {
+      estimator.add(i % 2);
+      other.add(i % 3 + 1);
+    }
+    other.add(2);
+    estimator.addAll(other);
+
+    assertEquals(13, estimator.getTotal());
+    assertEquals(3, estimator.getCount(0));
+    assertEquals(5, estimator.getCount(1));
+    assertEquals(3, estimator.getCount(2));
+    assertEquals(2, estimator.getCount(3));
+    assertEquals(1, (int) estimator.getMostFrequent());
+  }
+
+  @Test
+  public void test_chanceEstimator_isDecided() {
+    for (int i = 0; i < 10; i++) {
+      estimator.add(1);
+      estimator.add(2);
+    }
+    assertFalse(estimator.isDecided());
+
+    int samples = 0;
+    while (!estimator.isDecided()) {
+      estimator.add(1);
+      samples++;
+    }
+    assertEquals(1, (int) estimator.getMostFrequent());
+    assertTrue(samples < 20);
+  }
+
+}
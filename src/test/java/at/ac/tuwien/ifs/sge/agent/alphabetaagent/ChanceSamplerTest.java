@@ -0,0 +1,48 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import at.ac.tuwien.ifs.sge.game.Game;
+import org.junit.After;
+import org.junit.Test;
+
+public class ChanceSamplerTest {
+
+  ChanceSampler sampler = new ChanceSampler(4, "ChanceSamplerTest");
+  Game<Integer, Integer> game = new TestDiceGame().doAction(7);
+
+  @After
+  public void tearDown() {
+    sampler.shutdown();
+  }
+
+  @Test
+  public void test_chanceSampler_sample() {
+    for (int times : new int[] {1, 10, 1000}) {
+      ChanceEstimator<Integer> estimator = sampler.sample(game, times);
+      assertEquals(times, estimator.getTotal());
+      int total = 0;
+      for (int face = 1; face <= 6; face++) {
+        total += estimator.getCount(face);
+      }
+      assertEquals(times, total);
+    }
+  }
+
+  @Test
+  public void test_chanceSampler_arena() {
+    AbNodeArena<Integer> tree = new AbNodeArena<>();
+    tree.setChanceSampler(sampler);
+    tree.findRoot(game);
+    int root = tree.getRoot();
+
+    tree.sampleDetermineAction(root, 500);
+    assertEquals(500, tree.getChanceTotal(root));
+
+    int samples = tree.simulateDetermineAction(root, 10000);
+    assertTrue(samples <= 10000);
+    assertEquals(500 + samples, tree.getChanceTotal(root));
+  }
+
+}
@@ -0,0 +1,58 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class EvaluationCacheTest {
+
+  EvaluationCache cache = new EvaluationCache(4);
+
+  private void put(long key, double value) {
+    int slot = cache.lookup(key, EvaluationCache.UTILITY);
+    assertTrue(slot < 0);
+    cache.store(-slot - 1, EvaluationCache.UTILITY, value);
+  }
+
+  @Test
+  public void test_evaluationCache_lookup() {
+    put(7L, 1.5);
+    int slot = cache.lookup(7L, EvaluationCache.UTILITY);
+    assertTrue(slot >= 0);
+    assertEquals(1.5, cache.get(slot, EvaluationCache.UTILITY), 0);
+
+    slot = cache.lookup(7L, EvaluationCache.HEURISTIC);
+    assertTrue(slot < 0);
+    cache.store(-slot - 1, EvaluationCache.HEURISTIC, -2);
+    assertEquals(1.5, cache.get(-slot - 1, EvaluationCache.UTILITY), 0);
+    assertEquals(-2, cache.get(cache.lookup(7L, EvaluationCache.HEURISTIC),
+        EvaluationCache.HEURISTIC), 0);
+
+    assertEquals(1, cache.size());
+    assertEquals(4, cache.getProbes());
+    assertEquals(2, cache.getHits());
+  }
+
+  @Test
+  public void test_evaluationCache_clock() {
+    for (long key = 0; key < 4; key++) {
+      put(key << 32, key);
+    }
+    cache.lookup(1L << 32, EvaluationCache.UTILITY);
+    cache.lookup(3L << 32, EvaluationCache.UTILITY);
+
+    put(4L << 32, 4);
+    put(5L << 32, 5);
+
+    assertEquals(4, cache.size());
+    for (long key = 1; key < 6; key += 2) {
+      int slot = cache.lookup(key << 32, EvaluationCache.UTILITY);
+      assertTrue(slot >= 0);
+      assertEquals(key, cache.get(slot, EvaluationCache.UTILITY), 0);
+    }
+    assertTrue(cache.lookup(0, EvaluationCache.UTILITY) < 0);
+    assertTrue(cache.lookup(2L << 32, EvaluationCache.UTILITY) < 0);
+  }
+
+}
@@ -0,0 +1,92 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import at.ac.tuwien.ifs.sge.game.Game;
+import org.junit.Test;
+
+public class MaxNSearchTest {
+
+  private static MaxNSearch<Integer> plain(int players) {
+    return new MaxNSearch<>(players, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, false,
+        null);
+  }
+
+  private static void assertSameValue(String message, Game<Integer, ?> game, int depth) {
+    int players = game.getNumberOfPlayers();
+    MaxNSearch<Integer> plain = plain(players);
+    MaxNSearch<Integer> pruning = new MaxNSearch<>(players, 0, 1, false, null);
+    assertFalse(plain.canPrune());
+    assertTrue(pruning.canPrune());
+
+    Integer expected = plain.search(game, depth, null, () -> false);
+    Integer actual = pruning.search(game, depth, null, () -> false);
+    assertEquals(message, expected, actual);
+    assertArrayEquals(message, plain.getUtilities(), pruning.getUtilities(), 0);
+    assertArrayEquals(message, plain.getHeuristics(), pruning.getHeuristics(), 0);
+    assertTrue(message, pruning.getNodesVisited() <= plain.getNodesVisited());
+  }
+
+  @Test
+  public void test_maxNSearch_pruningKeepsValue() {
+    for (int players = 3; players <= 4; players++) {
+      for (int tokens = 1; tokens <= 12; tokens++) {
+        for (int depth = 1; depth <= tokens; depth++) {
+          assertSameValue(players + " players, " + tokens + " tokens, depth " + depth,
+              new TestNimGame(players, tokens, 3), depth);
+        }
+      }
+      for (long seed = 0; seed < 50; seed++) {
+        assertSameValue(players + " players, seed " + seed,
+            new TestShareGame(players, 3, 6, seed), 6);
+      }
+      // the utilities tie often, so the heuristic decides
+      for (long seed = 0; seed < 50; seed++) {
+        assertSameValue(players + " players, score seed " + seed,
+            new TestScoreGame(players, 3, 5, seed), 5);
+      }
+    }
+  }
+
+  @Test
+  public void test_maxNSearch_prunes() {
+    Game<Integer, Integer> nim = new TestNimGame(3, 12, 3);
+    MaxNSearch<Integer> plain = plain(3);
+    MaxNSearch<Integer> pruning = new MaxNSearch<>(3, 0, 1, false, null);
+    plain.search(nim, 12, null, () -> false);
+    pruning.search(nim, 12, null, () -> false);
+    assertEquals(0, plain.getShallowCutOffs() + plain.getLastBranchCutOffs());
+    assertTrue(pruning.getShallowCutOffs() > 0);
+    assertTrue(pruning.getNodesVisited() < plain.getNodesVisited());
+    assertTrue(pruning.isExhausted());
+
+    long lastBranchCutOffs = 0;
+    for (long seed = 0; seed < 50; seed++) {
+      pruning.search(new TestShareGame(3, 3, 6, seed), 6, null, () -> false);
+      lastBranchCutOffs += pruning.getLastBranchCutOffs();
+    }
+    assertTrue(lastBranchCutOffs > 0);
+  }
+
+  @Test
+  public void test_maxNSearch_takesWin() {
+    MaxNSearch<Integer> search = new MaxNSearch<>(3, 0, 1, false, null);
+    assertEquals(Integer.valueOf(2), search.search(new TestNimGame(3, 2, 3), 2, null, () -> false));
+    assertArrayEquals(new double[] {1, 0, 0}, search.getUtilities(), 0);
+
+    // the first action is searched first but not taken unless it is best
+    assertEquals(Integer.valueOf(3), search.search(new TestNimGame(3, 3, 3), 1, 1, () -> false));
+  }
+
+  @Test
+  public void test_maxNSearch_abort() {
+    MaxNSearch<Integer> search = new MaxNSearch<>(3, 0, 1, false, null);
+    assertNull(search.search(new TestNimGame(3, 30, 3), 30, null, () -> true));
+    assertFalse(search.isExhausted());
+  }
+
+}
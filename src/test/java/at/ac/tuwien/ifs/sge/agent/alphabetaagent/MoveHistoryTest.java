@@ -0,0 +1,62 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class MoveHistoryTest {
+
+  MoveHistory<Integer> history = new MoveHistory<>();
+
+  @Test
+  public void test_moveHistory_killers() {
+    history.recordCutOff(3, 0, 1, 2);
+    history.recordCutOff(3, 0, 2, 2);
+    history.recordCutOff(3, 0, 2, 2);
+
+    assertEquals(2, (int) history.getKiller(3, 0));
+    assertEquals(1, (int) history.getKiller(3, 1));
+    assertNull(history.getKiller(2, 0));
+    assertNull(history.getKiller(100, 0));
+
+    assertTrue(history.score(3, 0, 2) > history.score(3, 0, 1));
+    assertTrue(history.score(3, 0, 1) > history.score(3, 0, 3));
+  }
+
+  @Test
+  public void test_moveHistory_order_bestActionFirst() {
+    history.recordCutOff(2, 0, 3, 1);
+    history.recordCutOff(2, 0, 4, 1);
+    history.recordCutOff(2, 0, 1, 5);
+
+    assertArrayEquals(new Object[] {2, 1, 4, 3, 5},
+        history.order(2, 0, new Object[] {5, 4, 3, 2, 1}, 2));
+    assertArrayEquals(new Object[] {4, 1, 3, 5},
+        history.order(2, 0, new Object[] {1, 3, 4, 5}, 4));
+    assertArrayEquals(new Object[] {3, 1, 4, 5},
+        history.order(2, 0, new Object[] {1, 4, 3, 5}, 3));
+  }
+
+  @Test
+  public void test_moveHistory_history() {
+    history.recordCutOff(1, 0, 5, 3);
+    history.recordCutOff(2, 0, 5, 1);
+    history.recordCutOff(2, 0, 7, 1);
+
+    assertEquals(10, history.getHistory(0, 5));
+    assertEquals(1, history.getHistory(0, 7));
+    assertEquals(0, history.getHistory(1, 5));
+    assertTrue(history.score(4, 0, 5) > history.score(4, 0, 7));
+
+    history.age();
+    assertEquals(5, history.getHistory(0, 5));
+
+    history.clear();
+    assertEquals(0, history.getHistory(0, 5));
+    assertNull(history.getKiller(1, 0));
+  }
+
+}
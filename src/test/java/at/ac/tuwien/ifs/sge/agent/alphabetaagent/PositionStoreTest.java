@@ -0,0 +1,118 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.After;
+import org.junit.Test;
+
+public class PositionStoreTest {
+
+  Path path;
+  PositionStore.Entry entry = new PositionStore.Entry();
+
+  private PositionStore open(int capacity) throws IOException {
+    if (path == null) {
+      path = Files.createTempFile("positions", ".bin");
+      Files.delete(path);
+    }
+    return new PositionStore(path, capacity);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    if (path != null) {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  @Test
+  public void test_positionStore_store() throws IOException {
+    PositionStore store = open(4);
+    assertFalse(store.load(1, entry));
+
+    store.store(1, 5, 1.5, TranspositionTable.EXACT, -2, TranspositionTable.LOWER_BOUND, 3);
+    assertTrue(store.load(1, entry));
+    assertEquals(5, entry.getDepth());
+    assertEquals(1.5, entry.getUtility(), 0);
+    assertEquals(TranspositionTable.EXACT, entry.getUtilityBound());
+    assertEquals(-2, entry.getHeuristic(), 0);
+    assertEquals(TranspositionTable.LOWER_BOUND, entry.getHeuristicBound());
+    assertEquals(3, entry.getBestIndex());
+    assertFalse(store.load(5, entry));
+
+    // another state replaces the entry even if it was searched shallower
+    store.store(5, 4, 0, TranspositionTable.EXACT, 0, TranspositionTable.EXACT, -1);
+    assertFalse(store.load(1, entry));
+    assertTrue(store.load(5, entry));
+    assertEquals(-1, entry.getBestIndex());
+
+    store.store(5, 3, 1, TranspositionTable.EXACT, 1, TranspositionTable.EXACT, 2);
+    assertTrue(store.load(5, entry));
+    assertEquals(4, entry.getDepth());
+    assertEquals(-1, entry.getBestIndex());
+
+    store.store(5, Integer.MAX_VALUE, 1, TranspositionTable.EXACT, 1, TranspositionTable.EXACT, 2);
+    store.store(1, 0, 0, TranspositionTable.EXACT, 0, TranspositionTable.EXACT, 0);
+    assertTrue(store.load(1, entry));
+    assertFalse(store.load(5, entry));
+  }
+
+  @Test
+  public void test_positionStore_reopen() throws IOException {
+    open(4).store(2, 7, 1, TranspositionTable.UPPER_BOUND, 2, TranspositionTable.EXACT, 0);
+
+    PositionStore store = open(16);
+    assertEquals(4, store.capacity());
+    assertTrue(store.load(2, entry));
+    assertEquals(7, entry.getDepth());
+    assertEquals(TranspositionTable.UPPER_BOUND, entry.getUtilityBound());
+
+    Files.write(path, new byte[128]);
+    try {
+      open(4);
+      fail("Opened a file which is not a position store");
+    } catch (IOException expected) {
+      // the header does not match
+    }
+  }
+
+  @Test
+  public void test_positionStore_open_sharesMapping() throws IOException {
+    open(4).store(3, 1, 0, TranspositionTable.EXACT, 0, TranspositionTable.EXACT, -1);
+
+    PositionStore store = PositionStore.open(path, 4);
+    PositionStore shared = PositionStore.open(path.getParent().resolve(".").resolve(
+        path.getFileName()), 16);
+    assertSame(store, shared);
+    assertTrue(shared.load(3, entry));
+
+    store.close();
+    assertSame(shared, PositionStore.open(path, 4));
+    shared.close();
+    shared.close();
+    PositionStore reopened = PositionStore.open(path, 4);
+    assertNotSame(store, reopened);
+    assertTrue(reopened.load(3, entry));
+    reopened.close();
+  }
+
+  @Test
+  public void test_positionStore_capacity() throws IOException {
+    try {
+      open(PositionStore.MAX_CAPACITY + 1);
+      fail("Opened a store too large to be mapped");
+    } catch (IllegalArgumentException expected) {
+      // the capacity is checked before the file is created
+    }
+    assertFalse(Files.exists(path));
+  }
+
+}
@@ -0,0 +1,103 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.After;
+import org.junit.Test;
+
+public class SearchTraceTest {
+
+  Path path;
+
+  @After
+  public void tearDown() throws IOException {
+    if (path != null) {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  @Test
+  public void test_searchTrace_ring() {
+    SearchTrace trace = new SearchTrace(3);
+    trace.clear(System.nanoTime());
+    assertEquals(0, trace.size());
+
+    for (int i = 0; i < 6; i++) {
+      trace.record(SearchTrace.EXPAND, i, 10 - i);
+    }
+    assertEquals(4, trace.size());
+    assertEquals(2, trace.getDropped());
+    assertEquals(2, trace.getPly(0));
+    assertEquals(5, trace.getPly(3));
+    assertEquals(5, trace.getDepth(3));
+    assertTrue(trace.getNanos(0) <= trace.getNanos(3));
+
+    trace.clear(System.nanoTime());
+    assertEquals(0, trace.size());
+    assertEquals(0, trace.getDropped());
+  }
+
+  @Test
+  public void test_searchTrace_readWrite() throws IOException {
+    SearchTrace trace = new SearchTrace(4);
+    trace.clear(System.nanoTime());
+    trace.record(SearchTrace.ITERATION, 0, 2);
+    trace.record(SearchTrace.EXPAND, 0, 2);
+    trace.record(SearchTrace.EVALUATE, 1, 1);
+    trace.record(SearchTrace.CUT_OFF, 0, 2);
+    trace.record(SearchTrace.EVALUATE, 1, 1);
+
+    path = Files.createTempFile("search", ".trace");
+    trace.write(path);
+    assertEquals(6 + 8 + 4 + 4 * 13, Files.size(path));
+
+    SearchTrace read = SearchTrace.read(path);
+    assertEquals(4, read.size());
+    assertEquals(1, read.getDropped());
+    for (int record = 0; record < 4; record++) {
+      assertEquals(trace.getNanos(record), read.getNanos(record));
+      assertEquals(trace.getType(record), read.getType(record));
+      assertEquals(trace.getPly(record), read.getPly(record));
+      assertEquals(trace.getDepth(record), read.getDepth(record));
+    }
+
+    Files.write(path, new byte[32]);
+    try {
+      SearchTrace.read(path);
+      fail("Read a file which is not a trace");
+    } catch (IOException expected) {
+      // the header does not match
+    }
+  }
+
+  @Test
+  public void test_searchTraceReader_histogram() {
+    SearchTrace trace = new SearchTrace(16);
+    trace.clear(System.nanoTime());
+    trace.record(SearchTrace.ITERATION, 0, 2);
+    trace.record(SearchTrace.EXPAND, 0, 2);
+    trace.record(SearchTrace.EXPAND, 1, 1);
+    trace.record(SearchTrace.EVALUATE, 2, 0);
+    trace.record(SearchTrace.EVALUATE, 2, 0);
+    trace.record(SearchTrace.CUT_OFF, 1, 1);
+
+    long[][] histogram = SearchTraceReader.histogram(trace);
+    assertEquals(3, histogram.length);
+    assertEquals(1, histogram[0][SearchTrace.ITERATION]);
+    assertEquals(1, histogram[0][SearchTrace.EXPAND]);
+    assertEquals(1, histogram[1][SearchTrace.EXPAND]);
+    assertEquals(1, histogram[1][SearchTrace.CUT_OFF]);
+    assertEquals(2, histogram[2][SearchTrace.EVALUATE]);
+    long nanos = 0;
+    for (long[] ply : histogram) {
+      nanos += ply[SearchTraceReader.NANOS];
+    }
+    assertEquals(trace.getNanos(5) - trace.getNanos(0), nanos);
+  }
+
+}
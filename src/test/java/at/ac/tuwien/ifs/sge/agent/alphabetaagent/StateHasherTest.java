@@ -0,0 +1,55 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import at.ac.tuwien.ifs.sge.game.Game;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class StateHasherTest {
+
+  @Test
+  public void test_boardStateHasher_transposition() {
+    StateHasher<Integer> stateHasher = new BoardStateHasher<>();
+    Game<Integer, Integer[]> game = new TestCountGame(-3, 3);
+
+    assertEquals(stateHasher.hash(game.doAction(1).doAction(-1)),
+        stateHasher.hash(game.doAction(-1).doAction(1)));
+    assertNotEquals(stateHasher.hash(game), stateHasher.hash(game.doAction(0)));
+  }
+
+  @Test
+  public void test_boardStateHasher_deepHashCodeCollision() {
+    int[][] board = {{0, 31}, {2}};
+    int[][] other = {{1, 0}, {2}};
+    assertEquals(Arrays.deepHashCode(board), Arrays.deepHashCode(other));
+
+    assertNotEquals(BoardStateHasher.hashBoard(board), BoardStateHasher.hashBoard(other));
+    assertEquals(BoardStateHasher.hashBoard(board),
+        BoardStateHasher.hashBoard(new int[][] {{0, 31}, {2}}));
+    assertNotEquals(BoardStateHasher.hashBoard(new int[][] {{1}, {}}),
+        BoardStateHasher.hashBoard(new int[][] {{}, {1}}));
+  }
+
+  @Test
+  public void test_zobristStateHasher_incremental() {
+    StateHasher<Integer> stateHasher = new ZobristStateHasher<>();
+    Game<Integer, Integer[]> game = new TestCountGame(-3, 3);
+    long hash = stateHasher.hash(game);
+
+    for (int action : new int[] {1, 0, -1, 1}) {
+      Game<Integer, Integer[]> next = game.doAction(action);
+      hash = stateHasher.hash(hash, game, action, next);
+      assertEquals(stateHasher.hash(next), hash);
+      game = next;
+    }
+  }
+
+  @Test
+  public void test_stateHasher_forGame() {
+    assertTrue(StateHasher.forGame(new TestCountGame()) instanceof BoardStateHasher);
+  }
+
+}
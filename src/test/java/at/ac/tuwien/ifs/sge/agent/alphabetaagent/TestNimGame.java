@@ -0,0 +1,135 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import at.ac.tuwien.ifs.sge.game.ActionRecord;
+import at.ac.tuwien.ifs.sge.game.Game;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The players take one up to a maximum number of tokens from a pile in turns, whoever takes the
+ * last token wins. By default two players take one or two tokens.
+ */
+public class TestNimGame implements Game<Integer, Integer> {
+
+  private final Set<Integer> possibleActions;
+  private final int numberOfPlayers;
+  private final boolean canonical;
+  private final List<ActionRecord<Integer>> actionRecords;
+  private final int currentPlayer;
+  private final int tokens;
+
+  public TestNimGame(int tokens) {
+    this(2, tokens, 2);
+  }
+
+  public TestNimGame(int numberOfPlayers, int tokens, int maxTake) {
+    this(createActions(maxTake), numberOfPlayers, 0, true, Collections.emptyList(), tokens);
+  }
+
+  private TestNimGame(Set<Integer> possibleActions, int numberOfPlayers, int currentPlayer,
+      boolean canonical, List<ActionRecord<Integer>> actionRecords, int tokens) {
+    this.possibleActions = possibleActions;
+    this.numberOfPlayers = numberOfPlayers;
+    this.currentPlayer = currentPlayer;
+    this.canonical = canonical;
+    this.actionRecords = new ArrayList<>(actionRecords);
+    this.tokens = tokens;
+  }
+
+  private static Set<Integer> createActions(int maxTake) {
+    Set<Integer> actions = new TreeSet<>();
+    for (int take = 1; take <= maxTake; take++) {
+      actions.add(take);
+    }
+    return Collections.unmodifiableSet(actions);
+  }
+
+  @Override
+  public boolean isGameOver() {
+    return tokens <= 0;
+  }
+
+  @Override
+  public int getMinimumNumberOfPlayers() {
+    return 2;
+  }
+
+  @Override
+  public int getMaximumNumberOfPlayers() {
+    return Integer.MAX_VALUE;
+  }
+
+  @Override
+  public int getNumberOfPlayers() {
+    return numberOfPlayers;
+  }
+
+  @Override
+  public int getCurrentPlayer() {
+    return currentPlayer;
+  }
+
+  @Override
+  public double getUtilityValue(int player) {
+    if (!isGameOver()) {
+      return 0;
+    }
+    // the player who took the last token is the one before the current one
+    return player == (currentPlayer + numberOfPlayers - 1) % numberOfPlayers ? 1 : 0;
+  }
+
+  @Override
+  public Set<Integer> getPossibleActions() {
+    if (isGameOver()) {
+      return Collections.emptySet();
+    }
+    return possibleActions;
+  }
+
+  @Override
+  public Integer getBoard() {
+    return tokens;
+  }
+
+  @Override
+  public boolean isValidAction(Integer integer) {
+    return possibleActions.contains(integer);
+  }
+
+  @Override
+  public Game<Integer, Integer> doAction(Integer integer) {
+    if (!isValidAction(integer) || isGameOver()) {
+      throw new IllegalArgumentException("" + integer);
+    }
+    TestNimGame next = new TestNimGame(possibleActions, numberOfPlayers,
+        (currentPlayer + 1) % numberOfPlayers, canonical, actionRecords,
+        Math.max(tokens - integer, 0));
+    next.actionRecords.add(new ActionRecord<>(currentPlayer, integer));
+    return next;
+  }
+
+  @Override
+  public Integer determineNextAction() {
+    return null;
+  }
+
+  @Override
+  public List<ActionRecord<Integer>> getActionRecords() {
+    return Collections.unmodifiableList(actionRecords);
+  }
+
+  @Override
+  public boolean isCanonical() {
+    return canonical;
+  }
+
+  @Override
+  public Game<Integer, Integer> getGame(int i) {
+    return new TestNimGame(possibleActions, numberOfPlayers, currentPlayer, false,
+        actionRecords, tokens);
+  }
+
+}
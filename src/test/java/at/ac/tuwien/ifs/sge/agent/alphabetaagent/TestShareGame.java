@@ -0,0 +1,147 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import at.ac.tuwien.ifs.sge.game.ActionRecord;
+import at.ac.tuwien.ifs.sge.game.Game;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The players choose one of a few actions in turns for a fixed number of plies. Every line then
+ * splits a utility of 1 among the players in sixteenths, pseudo-randomly by a hash of the actions
+ * taken, so every player has a stake in every outcome.
+ */
+public class TestShareGame implements Game<Integer, Long> {
+
+  static final int SHARES = 16;
+
+  private final Set<Integer> possibleActions;
+  private final int numberOfPlayers;
+  private final int length;
+  private final boolean canonical;
+  private final List<ActionRecord<Integer>> actionRecords;
+  private final int currentPlayer;
+  private final long path;
+
+  public TestShareGame(int numberOfPlayers, int branching, int length, long seed) {
+    this(createActions(branching), numberOfPlayers, length, 0, true, Collections.emptyList(),
+        seed);
+  }
+
+  private TestShareGame(Set<Integer> possibleActions, int numberOfPlayers, int length,
+      int currentPlayer, boolean canonical, List<ActionRecord<Integer>> actionRecords,
+      long path) {
+    this.possibleActions = possibleActions;
+    this.numberOfPlayers = numberOfPlayers;
+    this.length = length;
+    this.currentPlayer = currentPlayer;
+    this.canonical = canonical;
+    this.actionRecords = new ArrayList<>(actionRecords);
+    this.path = path;
+  }
+
+  private static Set<Integer> createActions(int branching) {
+    Set<Integer> actions = new TreeSet<>();
+    for (int action = 0; action < branching; action++) {
+      actions.add(action);
+    }
+    return Collections.unmodifiableSet(actions);
+  }
+
+  @Override
+  public boolean isGameOver() {
+    return actionRecords.size() >= length;
+  }
+
+  @Override
+  public int getMinimumNumberOfPlayers() {
+    return 2;
+  }
+
+  @Override
+  public int getMaximumNumberOfPlayers() {
+    return Integer.MAX_VALUE;
+  }
+
+  @Override
+  public int getNumberOfPlayers() {
+    return numberOfPlayers;
+  }
+
+  @Override
+  public int getCurrentPlayer() {
+    return currentPlayer;
+  }
+
+  @Override
+  public double getUtilityValue(int player) {
+    if (!isGameOver()) {
+      return 0;
+    }
+    long hash = StateHasher.mix(path);
+    int left = SHARES;
+    for (int p = 0; p < numberOfPlayers - 1; p++) {
+      int share = (int) Long.remainderUnsigned(hash, left + 1);
+      hash = StateHasher.mix(hash);
+      if (p == player) {
+        return (double) share / SHARES;
+      }
+      left -= share;
+    }
+    return (double) left / SHARES;
+  }
+
+  @Override
+  public Set<Integer> getPossibleActions() {
+    if (isGameOver()) {
+      return Collections.emptySet();
+    }
+    return possibleActions;
+  }
+
+  @Override
+  public Long getBoard() {
+    return path;
+  }
+
+  @Override
+  public boolean isValidAction(Integer integer) {
+    return possibleActions.contains(integer);
+  }
+
+  @Override
+  public Game<Integer, Long> doAction(Integer integer) {
+    if (!isValidAction(integer) || isGameOver()) {
+      throw new IllegalArgumentException("" + integer);
+    }
+    TestShareGame next = new TestShareGame(possibleActions, numberOfPlayers, length,
+        (currentPlayer + 1) % numberOfPlayers, canonical, actionRecords,
+        StateHasher.mix(path * 31 + integer));
+    next.actionRecords.add(new ActionRecord<>(currentPlayer, integer));
+    return next;
+  }
+
+  @Override
+  public Integer determineNextAction() {
+    return null;
+  }
+
+  @Override
+  public List<ActionRecord<Integer>> getActionRecords() {
+    return Collections.unmodifiableList(actionRecords);
+  }
+
+  @Override
+  public boolean isCanonical() {
+    return canonical;
+  }
+
+  @Override
+  public Game<Integer, Long> getGame(int i) {
+    return new TestShareGame(possibleActions, numberOfPlayers, length, currentPlayer, false,
+        actionRecords, path);
+  }
+
+}
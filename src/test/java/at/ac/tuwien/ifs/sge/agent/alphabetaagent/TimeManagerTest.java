@@ -0,0 +1,45 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TimeManagerTest {
+
+  @Test
+  public void test_timeManager_predictsNextIteration() {
+    TimeManager timeManager = new TimeManager(100);
+    timeManager.start(0, 1000);
+    assertTrue(timeManager.shouldStartIteration(0));
+
+    timeManager.addIteration(100, 100);
+    assertEquals(100, timeManager.predictNextNanos());
+    assertTrue(timeManager.shouldStartIteration(800));
+    assertFalse(timeManager.shouldStartIteration(950));
+
+    timeManager.addIteration(300, 300);
+    assertEquals(3, timeManager.getEffectiveBranchingFactor(), 1e-9);
+    assertEquals(1e9, timeManager.getNodesPerSecond(), 1e-3);
+    assertEquals(900, timeManager.predictNextNanos());
+    assertTrue(timeManager.shouldStartIteration(50));
+    assertFalse(timeManager.shouldStartIteration(200));
+
+    timeManager.addIteration(600, 600);
+    assertEquals(Math.sqrt(6), timeManager.getEffectiveBranchingFactor(), 1e-9);
+    assertEquals(3, timeManager.getIterations());
+  }
+
+  @Test
+  public void test_timeManager_softDeadline() {
+    TimeManager timeManager = new TimeManager(50);
+    timeManager.start(-100, 1000);
+    assertTrue(timeManager.shouldStartIteration(399));
+    assertFalse(timeManager.shouldStartIteration(400));
+
+    timeManager.start(Long.MAX_VALUE - 10, 1000);
+    assertTrue(timeManager.shouldStartIteration(Long.MAX_VALUE));
+  }
+
+}
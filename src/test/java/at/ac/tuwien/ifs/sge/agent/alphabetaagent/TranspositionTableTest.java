@@ -0,0 +1,94 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class TranspositionTableTest {
+
+  TranspositionTable<Integer> table = new TranspositionTable<>(16);
+  TranspositionTable.Entry<Integer> entry = new TranspositionTable.Entry<>();
+
+  @Test
+  public void test_transpositionTable_store_load() {
+    assertFalse(table.load(42L, entry));
+    table.store(42L, 3, 1D, TranspositionTable.EXACT, 0.5D, TranspositionTable.EXACT, 7);
+
+    assertTrue(table.load(42L, entry));
+    assertEquals(3, entry.getDepth());
+    assertEquals(1D, entry.getUtility(), 0D);
+    assertEquals(TranspositionTable.EXACT, entry.getUtilityBound());
+    assertEquals(0.5D, entry.getHeuristic(), 0D);
+    assertEquals(TranspositionTable.EXACT, entry.getHeuristicBound());
+    assertEquals(7, (int) entry.getBestAction());
+    assertEquals(7, (int) table.getBestAction(42L));
+    assertEquals(1, table.size());
+    assertEquals(2, table.getProbes());
+    assertEquals(1, table.getHits());
+  }
+
+  @Test
+  public void test_transpositionTable_keepsDeeperEntry() {
+    table.store(42L, 5, 1D, TranspositionTable.EXACT, 1D, TranspositionTable.EXACT, 1);
+    table.store(42L, 2, -1D, TranspositionTable.EXACT, -1D, TranspositionTable.EXACT, -1);
+
+    assertTrue(table.load(42L, entry));
+    assertEquals(5, entry.getDepth());
+    assertEquals(1, (int) entry.getBestAction());
+  }
+
+  @Test
+  public void test_transpositionTable_isUsable() {
+    table.store(1L, 2, 1D, TranspositionTable.LOWER_BOUND, 0D, TranspositionTable.EXACT, null);
+    assertTrue(table.load(1L, entry));
+
+    assertTrue(entry.isUsable(2, 0D, 1D, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY));
+    assertFalse(entry.isUsable(3, 0D, 1D, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY));
+    assertFalse(entry.isUsable(2, 0D, 2D, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY));
+
+    table.store(2L, 2, 1D, TranspositionTable.EXACT, 0D, TranspositionTable.UPPER_BOUND, null);
+    assertTrue(table.load(2L, entry));
+    assertTrue(entry.isUsable(1, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, 0D, 1D));
+    assertFalse(entry.isUsable(1, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, -1D, 1D));
+  }
+
+  @Test
+  public void test_transpositionTable_clear() {
+    table.store(42L, 1, 0D, TranspositionTable.EXACT, 0D, TranspositionTable.EXACT, 0);
+    table.clear();
+    assertFalse(table.load(42L, entry));
+    assertEquals(0, table.size());
+  }
+
+  @Test
+  public void test_transpositionTable_concurrentLoadsAreConsistent() throws InterruptedException {
+    TranspositionTable<Integer> shared = new TranspositionTable<>(4);
+    AtomicInteger inconsistent = new AtomicInteger();
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      int offset = t;
+      threads[t] = new Thread(() -> {
+        TranspositionTable.Entry<Integer> entry = new TranspositionTable.Entry<>();
+        for (int i = 0; i < 100000; i++) {
+          int value = i * threads.length + offset;
+          shared.store(value & 7, value, value, TranspositionTable.EXACT, -value,
+              TranspositionTable.EXACT, value);
+          if (shared.load(i & 7, entry) && (entry.getDepth() != entry.getUtility()
+              || entry.getUtility() != -entry.getHeuristic()
+              || entry.getDepth() != entry.getBestAction())) {
+            inconsistent.incrementAndGet();
+          }
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(0, inconsistent.get());
+  }
+
+}
@@ -0,0 +1,321 @@
+package at.ac.tuwien.ifs.sge.agent.alphabetaagent;
+
+import at.ac.tuwien.ifs.sge.agent.GameAgent;
+import at.ac.tuwien.ifs.sge.engine.Logger;
+import at.ac.tuwien.ifs.sge.game.Game;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+
+/**
+ * Plays matches of the agent against itself, or against the agent of a baseline jar, on several
+ * threads at once and reports per game the matches per hour, the depth and speed of the searches
+ * and how the agent scored. The agent takes every seat in turn.
+ *
+ * <p>Configured by the system properties {@code tournament.games}, {@code tournament.matches},
+ * {@code tournament.threads}, {@code tournament.moveTime}, {@code tournament.maxActions}, {@code
+ * tournament.baseline} and {@code tournament.logLevel}, the agents by the usual {@code
+ * alphabetaagent.*} properties.
+ */
+public class Tournament {
+
+  private static final String GAMES = System.getProperty("tournament.games", "COUNT,DICE,GIB");
+  private static final int MATCHES = Integer.getInteger("tournament.matches", 100);
+  private static final int THREADS = Integer
+      .getInteger("tournament.threads", Runtime.getRuntime().availableProcessors());
+  private static final long MOVE_TIME = Long.getLong("tournament.moveTime", 100);
+  private static final int MAX_ACTIONS = Integer.getInteger("tournament.maxActions", 200);
+  private static final String BASELINE = System.getProperty("tournament.baseline");
+  private static final int LOG_LEVEL = Integer.getInteger("tournament.logLevel", 1);
+
+  public static void main(String[] args) throws Exception {
+    AgentFactory opponents = BASELINE == null ? Tournament::createAgent
+        : loadBaseline(Paths.get(BASELINE));
+    System.out.printf("%d matches per game on %d threads, %d ms per move, against %s%n",
+        MATCHES, THREADS, MOVE_TIME, BASELINE == null ? "itself" : BASELINE);
+
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      for (String name : GAMES.split(",")) {
+        BenchmarkGame game = BenchmarkGame.valueOf(name.trim());
+        long start = System.nanoTime();
+        List<Future<MatchResult>> matches = new ArrayList<>(MATCHES);
+        for (int i = 0; i < MATCHES; i++) {
+          int match = i;
+          matches.add(executor.submit(() -> play(game, match, opponents)));
+        }
+        MatchResult total = new MatchResult();
+        int failed = 0;
+        for (Future<MatchResult> match : matches) {
+          try {
+            total.add(match.get());
+          } catch (ExecutionException e) {
+            failed++;
+            System.err.printf("%s: match failed: %s%n", game, e.getCause());
+          }
+        }
+        report(game, total, failed, System.nanoTime() - start);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static MatchResult play(BenchmarkGame benchmarkGame, int match, AgentFactory opponents)
+      throws ReflectiveOperationException {
+    Game<Object, ?> game = (Game<Object, ?>) benchmarkGame.create();
+    int numberOfPlayers = game.getNumberOfPlayers();
+    int seat = match % numberOfPlayers;
+    List<GameAgent<Game<Object, ?>, Object>> agents = new ArrayList<>(numberOfPlayers);
+    for (int player = 0; player < numberOfPlayers; player++) {
+      GameAgent<Game<Object, ?>, Object> agent = player == seat ? createAgent()
+          : opponents.create();
+      agent.setUp(numberOfPlayers, player);
+      agents.add(agent);
+    }
+
+    MatchResult result = new MatchResult();
+    try {
+      while (!game.isGameOver() && game.getActionRecords().size() < MAX_ACTIONS) {
+        int player = game.getCurrentPlayer();
+        if (player < 0) {
+          game = game.doAction(game.determineNextAction());
+          continue;
+        }
+        GameAgent<Game<Object, ?>, Object> agent = agents.get(player);
+        Object action = agent.computeNextAction(game.getGame(player), MOVE_TIME,
+            TimeUnit.MILLISECONDS);
+        (player == seat ? result.agent : result.opponents).add(agent);
+        game = game.doAction(action);
+      }
+    } finally {
+      for (GameAgent<Game<Object, ?>, Object> agent : agents) {
+        agent.tearDown();
+        agent.destroy();
+      }
+    }
+
+    double utility = game.getUtilityValue(seat);
+    double bestOpponentUtility = Double.NEGATIVE_INFINITY;
+    for (int player = 0; player < numberOfPlayers; player++) {
+      if (player != seat) {
+        bestOpponentUtility = Math.max(bestOpponentUtility, game.getUtilityValue(player));
+      }
+    }
+    result.matches = 1;
+    result.utility = utility;
+    if (numberOfPlayers > 1) {
+      if (utility > bestOpponentUtility) {
+        result.wins = 1;
+      } else if (utility < bestOpponentUtility) {
+        result.losses = 1;
+      } else {
+        result.draws = 1;
+      }
+    }
+    return result;
+  }
+
+  private static void report(BenchmarkGame game, MatchResult result, int failed, long nanos) {
+    System.out.printf("%s: %d matches, %d failed, %.1f s, %.0f matches/hour%n",
+        game, result.matches, failed, nanos / 1e9, result.matches * 3600e9 / nanos);
+    double averageUtility = result.matches == 0 ? 0 : result.utility / result.matches;
+    if (result.wins + result.draws + result.losses > 0) {
+      System.out.printf("  agent: %d wins, %d draws, %d losses (%.1f%%), average utility %.2f%n",
+          result.wins, result.draws, result.losses, result.getScore() * 100, averageUtility);
+    } else {
+      System.out.printf("  agent: average utility %.2f%n", averageUtility);
+    }
+    System.out.printf("  agent: %s%n", result.agent);
+    if (result.opponents.moves > 0) {
+      System.out.printf("  opponents: %s%n", result.opponents);
+    }
+  }
+
+  private static AlphaBetaAgent<Game<Object, ?>, Object> createAgent() {
+    return new AlphaBetaAgent<>(createLogger());
+  }
+
+  private static Logger createLogger() {
+    return new Logger(LOG_LEVEL, "",
+        "",
+        "",
+        System.out,
+        "",
+        "",
+        System.out,
+        "",
+        "",
+        System.out,
+        "",
+        "",
+        System.err,
+        "",
+        "",
+        System.err,
+        ""
+    );
+  }
+
+  /**
+   * Loads the agent named by the {@code Agent-Class} attribute of the manifest of a jar, like sge
+   * does. Classes of this package are taken from the jar even though the current build has them,
+   * everything else, the engine in particular, is shared.
+   */
+  @SuppressWarnings("unchecked")
+  private static AgentFactory loadBaseline(Path jar)
+      throws IOException, ReflectiveOperationException {
+    String agentClass;
+    try (JarFile file = new JarFile(jar.toFile())) {
+      agentClass = file.getManifest().getMainAttributes().getValue("Agent-Class");
+    }
+    ClassLoader classLoader = new BaselineClassLoader(jar.toUri().toURL(),
+        Tournament.class.getClassLoader());
+    Constructor<?> constructor = classLoader.loadClass(agentClass).getConstructor(Logger.class);
+    return () -> (GameAgent<Game<Object, ?>, Object>) constructor.newInstance(createLogger());
+  }
+
+  @FunctionalInterface
+  private interface AgentFactory {
+
+    GameAgent<Game<Object, ?>, Object> create() throws ReflectiveOperationException;
+
+  }
+
+  private static final class BaselineClassLoader extends URLClassLoader {
+
+    private static final String PACKAGE = Tournament.class.getPackageName() + ".";
+
+    static {
+      registerAsParallelCapable();
+    }
+
+    BaselineClassLoader(URL jar, ClassLoader parent) {
+      super(new URL[] {jar}, parent);
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+      if (!name.startsWith(PACKAGE)) {
+        return super.loadClass(name, resolve);
+      }
+      synchronized (getClassLoadingLock(name)) {
+        Class<?> loadedClass = findLoadedClass(name);
+        if (loadedClass == null) {
+          try {
+            loadedClass = findClass(name);
+          } catch (ClassNotFoundException e) {
+            return super.loadClass(name, resolve);
+          }
+        }
+        if (resolve) {
+          resolveClass(loadedClass);
+        }
+        return loadedClass;
+      }
+    }
+
+  }
+
+  /**
+   * The results and search statistics of one or more matches from the view of the agent.
+   */
+  private static final class MatchResult {
+
+    private final Searches agent = new Searches();
+    private final Searches opponents = new Searches();
+    private int matches;
+    private int wins;
+    private int draws;
+    private int losses;
+    private double utility;
+
+    void add(MatchResult other) {
+      agent.add(other.agent);
+      opponents.add(other.opponents);
+      matches += other.matches;
+      wins += other.wins;
+      draws += other.draws;
+      losses += other.losses;
+      utility += other.utility;
+    }
+
+    /**
+     * @return the share of the matches won, counting draws as half
+     */
+    double getScore() {
+      int decided = wins + draws + losses;
+      return decided == 0 ? 0 : (wins + draws / 2D) / decided;
+    }
+
+  }
+
+  /**
+   * The search statistics of the moves of one or more agents. They are read reflectively, since an
+   * agent of a baseline jar has its own copies of the classes of this package, if any. The moves of
+   * agents without {@code getStatistics()} are counted, but not their searches.
+   */
+  private static final class Searches {
+
+    private long moves;
+    private long searches;
+    private long depths;
+    private long nodes;
+    private long nanos;
+
+    void add(GameAgent<?, ?> agent) throws ReflectiveOperationException {
+      moves++;
+      Object statistics;
+      Method getDepth;
+      Method getNodesVisited;
+      Method getNanos;
+      try {
+        statistics = agent.getClass().getMethod("getStatistics").invoke(agent);
+        if (statistics == null) {
+          return;
+        }
+        getDepth = statistics.getClass().getMethod("getDepth");
+        getNodesVisited = statistics.getClass().getMethod("getNodesVisited");
+        getNanos = statistics.getClass().getMethod("getNanos");
+      } catch (NoSuchMethodException e) {
+        return;
+      }
+      searches++;
+      depths += ((Number) getDepth.invoke(statistics)).longValue();
+      nodes += ((Number) getNodesVisited.invoke(statistics)).longValue();
+      nanos += ((Number) getNanos.invoke(statistics)).longValue();
+    }
+
+    void add(Searches other) {
+      moves += other.moves;
+      searches += other.searches;
+      depths += other.depths;
+      nodes += other.nodes;
+      nanos += other.nanos;
+    }
+
+    @Override
+    public String toString() {
+      if (searches == 0) {
+        return String.format("%d moves, search statistics unavailable", moves);
+      }
+      return String.format("%d moves, average depth %.1f, %.0f nodes/s", moves,
+          (double) depths / searches, nanos == 0 ? 0 : nodes * 1e9 / nanos);
+    }
+
+  }
+
+}